@@ -0,0 +1,118 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compact binary form of a trace, written by trace_gen and read by sim_cache
+// wherever a text trace is accepted (it's recognized by its magic).
+// Layout: magic, version, then one varint per reference holding
+// zigzag(address delta) << 1 | write, with the address delta taken from the
+// previous reference. Streams and small strides take 1-2 bytes a reference.
+// Addresses must stay below 2^62 so every delta fits a record.
+public class BinaryTrace {
+    static final int MAGIC = 0x53545243; // "STRC"
+    static final int VERSION = 1;
+
+    // Input: A trace file name
+    // Output: true if the file starts with the binary trace magic
+    public static boolean isBinary(String file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        }
+        catch (EOFException e) {
+            return false;
+        }
+    }
+
+    // Input: A binary trace file name and the address width
+    // Output: Every reference as a command, in trace order
+    public static List<Command> read(String file, int addrBits) throws IOException {
+        List<Command> commands = new ArrayList<Command>();
+        try (Reader reader = new Reader(file, addrBits)) {
+            Command command;
+            while ((command = reader.next()) != null) {
+                commands.add(command);
+            }
+        }
+        return commands;
+    }
+
+    // Reads a binary trace one reference at a time
+    public static class Reader implements AutoCloseable {
+        DataInputStream in;
+        long mask;
+        long addr;
+
+        public Reader(String file, int addrBits) throws IOException {
+            this.mask = (addrBits == 64) ? -1L : (1L << addrBits) - 1;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+            this.in.readInt();
+            int version = this.in.readInt();
+            if (version != VERSION) {
+                this.in.close();
+                throw new IOException("unsupported binary trace version " + version);
+            }
+        }
+
+        // Output: The next reference, or null at the end of the trace
+        public Command next() throws IOException {
+            long word;
+            try {
+                word = MissStream.readVarint(this.in);
+            }
+            catch (EOFException e) {
+                return null;
+            }
+            this.addr += MissStream.unzigzag(word >>> 1);
+            return new Command(((word & 1) != 0) ? 'w' : 'r', this.addr & this.mask);
+        }
+
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    // Appends references to a binary trace
+    public static class Writer {
+        OutputStream out;
+        byte[] buffer = new byte[1 << 16];
+        int count;
+        long lastAddr;
+
+        public Writer(OutputStream out) throws IOException {
+            this.out = out;
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+        }
+
+        public void write(boolean write, long addr) throws IOException {
+            if (this.count > this.buffer.length - 10) {
+                drain();
+            }
+            long value = (MissStream.zigzag(addr - this.lastAddr) << 1) | (write ? 1 : 0);
+            this.lastAddr = addr;
+            while ((value & ~0x7FL) != 0) {
+                this.buffer[this.count++] = (byte)((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.buffer[this.count++] = (byte)value;
+        }
+
+        void drain() throws IOException {
+            this.out.write(this.buffer, 0, this.count);
+            this.count = 0;
+        }
+
+        public void close() throws IOException {
+            drain();
+            this.out.close();
+        }
+    }
+}
@@ -1,580 +1,684 @@
-import java.util.AbstractMap;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Queue;
-
-public class Cache {
-    // Parameters passed in from command line arguments
-    int blocksize; // Used to calculate numSets
-    int cacheSize; // Used to calculate numSets
-    int assoc; // Used to calculate numSets and number of columns in blocks array
-    int policy; // Controls type of eviction-selection method
-    int inclusion; // Controls whether L1 blocks are invalidated on L2 eviction
-    HashMap<Map.Entry<String, Integer>, Queue<Integer>> optimalMap;
-
-    // Calculated from parameters
-    int numSets;
-    int offsetBits;
-    int indexBits;
-    int tagBits;
-
-    int level; // For easy printing
-    // References to connected cache blocks
-    Cache nextLvl; // null means connected to main memory
-    Cache prevLvl; // null means L1 cache
-    Block[][] blocks; // Actual block storage
-
-    // Performance tracking
-    int numReads;
-    int numReadMisses;
-    int numWrites;
-    int numWriteMisses;
-    int numWritebacks;
-    int numInvalWritebacks; // Writebacks to main memory only from invalidation
-
-    public Cache(int blocksize, int cacheSize, int assoc, int policy, int inclusion, int level, Cache nextLvl, Cache prevLevel, HashMap<Map.Entry<String, Integer>, Queue<Integer>> optimalMap) {
-        this.blocksize = blocksize;
-        this.cacheSize = cacheSize;
-        this.assoc = assoc;
-        this.policy = policy;
-        this.inclusion = inclusion;
-        this.level = level;
-        this.nextLvl = nextLvl;
-        this.prevLvl = prevLevel;
-        this.optimalMap = optimalMap;
-
-        this.numReads = 0;
-        this.numReadMisses = 0;
-        this.numWrites = 0;
-        this.numWriteMisses = 0;
-        this.numWritebacks = 0;
-        this.numInvalWritebacks = 0;
-
-        if (assoc > 0 && blocksize > 0) {
-            this.numSets = cacheSize / (assoc * blocksize);
-        }
-        else {
-            this.numSets = 0;
-        }
-
-        this.offsetBits = (int)(Math.log(blocksize) / Math.log(2));
-        this.indexBits = (int)(Math.log(this.numSets) / Math.log(2));
-        this.tagBits = 32 - this.offsetBits - this.indexBits;
-
-        this.blocks = new Block[numSets][assoc];
-    }
-
-    // Input: A String representing a block's hex address and the # of bits used for tag
-    // Output: A String representing only the block's tag in hexadecimal
-    public static String calcTag(String hexAddr, int tagBits) {
-        // Convert address to binary
-        String binaryAddr = Integer.toBinaryString(Integer.parseInt(hexAddr, 16));
-
-        // Pad with leading 0's until 32 bits
-        if (binaryAddr.length() < 32) {
-            binaryAddr = String.format("%32s", binaryAddr).replace(' ', '0');
-        }
-
-        // Get only the first {tagBits} number of bits
-        String binaryTag = binaryAddr.substring(0, tagBits);
-
-        // Convert tag to decimal
-        int tag = Integer.parseInt(binaryTag, 2);
-
-        // Convert tag to hex String and return
-        String hexTag = Integer.toHexString(tag);
-        return hexTag;
-    }
-    
-    // Input: A String representing a block's hex address, an int number of bits
-    // used for tag, and an int number of  bits used for index
-    // Output: A String representing only the block's index in hexadecimal
-    public static int calcIndex(String hexAddr, int tagBits, int indexBits) {
-        if (indexBits == 0) {
-            return 0;
-        }
-        // Convert address to binary
-        String binaryAddr = Integer.toBinaryString(Integer.parseInt(hexAddr, 16));
-
-        // Pad with leading 0's until 32 bits
-        if (binaryAddr.length() < 32) {
-            binaryAddr = String.format("%1$32s", binaryAddr).replace(' ', '0');
-        }
-
-        // Get only the middle bits in range ({tagBits}, {indexBits}]
-        String binaryIndex = binaryAddr.substring(tagBits, tagBits + indexBits);
-
-        // Convert index to decimal and return
-        int index = Integer.parseInt(binaryIndex, 2);
-        return index;
-    }
-
-    // On L2 eviction (happens when read or write request misses at the
-    // L2 cache and the requested block needs to be allocated). When a 
-    // victim block in the L2 cache needs to be evicted, the L2 cache 
-    // must invalidate the corresponding block in L1 as well (assuming 
-    // it exists there). If the L1 block that needs to be invalidated is 
-    // dirty, a write of the block will be issued to the main memory directly.
-    // Input: A String representing a block's hex address
-    // Output: No output, marks the block passed in as invalid
-    public void invalidate(String address) {
-        // Get block's tag and index
-        String tag = calcTag(address, this.tagBits);
-        int index = calcIndex(address, this.tagBits, this.indexBits);
-
-        // Convert address to binary
-        String binaryAddr = Integer.toBinaryString(Integer.parseInt(address, 16));
-        // Pad with leading 0's until 32 bits
-        if (binaryAddr.length() < 32) {
-            binaryAddr = String.format("%1$32s", binaryAddr).replace(' ', '0');
-        }
-        
-        // Iterate through every block in the {index} set
-        for (int i = 0; i < this.blocks[index].length; i++) {
-            Block cell = this.blocks[index][i];
-            // Compare tag of current block to target tag
-            String cellTag = calcTag(cell.address, this.tagBits);
-            if (cell != null && cellTag.equals(tag)) {
-                cell.valid = false; // Invalidate block
-                if (cell.dirty == true) { // If dirty, writeback to main memory
-                    this.numInvalWritebacks++;
-                    cell.dirty = false; // Mark clean to avoid future writebacks
-                }
-            }
-        }
-    }
-
-    // Input: A Command with hex String address and 'r' or 'w' cmd, an int clockCycle
-    // Output: Void
-    public void access(Command command, int clockCycle) {
-        if (command.cmd == 'r') {
-            this.numReads++;
-        }
-        else {
-            this.numWrites++;
-        }
-
-        // Convert target address to binary
-        String binaryAddr = Integer.toBinaryString(Integer.parseInt(command.addr, 16));
-        // Pad with leading 0's until 32 bits
-        if (binaryAddr.length() < 32) {
-            binaryAddr = String.format("%1$32s", binaryAddr).replace(' ', '0');
-        }
-
-        // Get tag, index, and offset
-        String tag = calcTag(command.addr, this.tagBits);
-        int index = calcIndex(command.addr, this.tagBits, this.indexBits);
-        Map.Entry<String, Integer> pair; // optimal only
-
-        // Write-allocate: Both write misses and read misses cause blocks to be allocated
-        // Initialize block to allocate
-        Block block = new Block(clockCycle, command.addr);
-        Block victim = null;
-        Block cell = null;
-        
-        // LRU: Replace the block that was least recently touched (updated on hits and misses).
-        if (policy == 0) {
-            int lruIndex = -1, lruCycle = Integer.MAX_VALUE;
-            for (int i = 0; i < this.blocks[index].length; i++) { // search for target block  
-                cell = this.blocks[index][i];
-                // Search for target tag
-                // Non-empty block found, compare tags
-                if (cell != null) {
-                    String cellTag = calcTag(cell.address, this.tagBits);
-                    if (cellTag.equals(tag)) { // hit
-                        if (cell.valid == true) {
-                            cell.clockCycle = clockCycle; // Update LRU
-                            if (command.cmd == 'w') { // Mark matching block dirty
-                                cell.dirty = true;
-                            } // hit
-                            return;
-                        }
-                        else { // Cache hit on invalid block, immediately replace
-                            lruIndex = i;
-                            break;
-                        }
-                    }
-                }
-            }
-            if (lruIndex == -1) { // Only continue searching if we haven't found a match
-                for (int i = 0; i < this.blocks[index].length; i++) { // search for empty block
-                    cell = this.blocks[index][i];
-                    if (cell == null) { // empty block found
-                        if (command.cmd == 'r') {
-                            this.numReadMisses++;
-                        }
-                        else {
-                            this.numWriteMisses++;
-                        }
-
-                        // If there is at least one invalid block in the set, then 
-                        // there is already space for the requested block X and no 
-                        // further action is required: Issue a read of the requested 
-                        // block X to the next level of the memory hierarchy and put 
-                        // the requested block X in the appropriate place in the set
-                        if (this.nextLvl != null) {
-                            Command tmp = new Command('r', command.addr);
-                            this.nextLvl.access(tmp, ++clockCycle);
-                        }
-                        if (command.cmd == 'w') { // Mark new block dirty
-                            block.dirty = true;
-                        } // miss
-
-                        this.blocks[index][i] = block; // Insert block into set
-
-                        return;
-                    }
-                }
-                for (int i = 0; i < this.blocks[index].length; i++) { // search for invalid or LRU block
-                    cell = this.blocks[index][i];
-
-                    if (cell.valid == false) { // If invalid, must evict
-                        lruIndex = i;
-                        break;
-                    }
-
-                    // Non-empty, non-matching, valid block
-                    if (cell.clockCycle < lruCycle) { // track LRU
-                        lruIndex = i;
-                        lruCycle = cell.clockCycle;
-                    }
-                }
-            }
-
-            // Eviction - Evict LRU block
-            victim = this.blocks[index][lruIndex];
-
-            // Convert victim address to binary
-            String binaryVictim = Integer.toBinaryString(Integer.parseInt(victim.address, 16));
-            // Pad with leading 0's until 32 bits
-            if (binaryVictim.length() < 32) {
-                binaryVictim = String.format("%1$32s", binaryVictim).replace(' ', '0');
-            }
-            
-            if (victim.dirty == true) { // If victim dirty, writeback
-                this.numWritebacks++;
-            }
-            
-            // Inclusive policy w/ valid victim and previous level cache
-            if (inclusion == 1 && victim != null && victim.valid == true && this.prevLvl != null) {
-                // Must invalidate lower-level victim upon eviction
-                this.prevLvl.invalidate(victim.address); 
-            }
-
-            // If this victim is dirty, then a write of the victim block 
-            // must be issued to the next level of the memory hierarchy
-            if (this.nextLvl != null) {
-                Command tmp;
-                if (victim.dirty == true && victim.valid == true) {
-                    tmp = new Command('w', victim.address);
-                    this.nextLvl.access(tmp, ++clockCycle);
-                    victim.dirty = false; // Mark clean, just in case
-                } // Issue read of requested block to next level
-                tmp = new Command('r', block.address);
-                this.nextLvl.access(tmp, ++clockCycle);
-            }
-            
-            victim.valid = false; // Mark invalid, just in case
-            
-            if (command.cmd == 'w') {
-                block.dirty = true; // Mark new block dirty
-            } // miss-eviction
-
-            if (command.cmd == 'r') {
-                this.numReadMisses++;
-            }
-            else {
-                this.numWriteMisses++;
-            }
-
-            this.blocks[index][lruIndex] = block; // Insert block into set
-            return;
-        }
-
-        //FIFO: Replace the block that was placed first in the cache.
-        else if (policy == 1) {
-            int firstIndex = -1, firstCycle = Integer.MAX_VALUE;
-            for (int i = 0; i < this.blocks[index].length; i++) { // search for target block  
-                cell = this.blocks[index][i];
-                // Search for target tag
-                // Non-empty block found, compare tags
-                if (cell != null) {
-                    String cellTag = calcTag(cell.address, this.tagBits);
-                    if (cellTag.equals(tag)) { // hit
-                        if (cell.valid == true) {
-                            if (command.cmd == 'w') { // Mark matching block dirty
-                                cell.dirty = true;
-                            } // hit
-                            return;
-                        }
-                        else { // Cache hit on invalid block, immediately replace
-                            firstIndex = i;
-                            break;
-                        }               
-                    }
-                }
-            }
-            if (firstIndex == -1) { // Only continue searching if we haven't found a match
-                for (int i = 0; i < this.blocks[index].length; i++) { // search for empty block
-                    cell = this.blocks[index][i];
-                    if (cell == null) { // empty block found
-                        if (command.cmd == 'r') {
-                            this.numReadMisses++;
-                        }
-                        else {
-                            this.numWriteMisses++;
-                        }
-
-                        // If there is at least one invalid block in the set, then 
-                        // there is already space for the requested block X and no 
-                        // further action is required: Issue a read of the requested 
-                        // block X to the next level of the memory hierarchy and put 
-                        // the requested block X in the appropriate place in the set
-                        if (this.nextLvl != null) {
-                            Command tmp = new Command('r', command.addr);
-                            this.nextLvl.access(tmp, ++clockCycle);
-                        }
-                        if (command.cmd == 'w') { // Mark new block dirty
-                            block.dirty = true;
-                        } // miss
-
-                        this.blocks[index][i] = block; // Insert block into set
-
-                        return;
-                    }
-                }
-                for (int i = 0; i < this.blocks[index].length; i++) { // search for invalid or FI block
-                    cell = this.blocks[index][i];
-                    
-                    if (cell.valid == false) { // If invalid, must evict
-                        firstIndex = i;
-                        break;
-                    }
-
-                    // Non-empty, non-matching, valid block
-                    else if (cell.clockCycle < firstCycle) { // track LRU
-                        firstIndex = i;
-                        firstCycle = cell.clockCycle;
-                    }
-                }
-            }
-            
-            // Eviction - FI block
-            victim = this.blocks[index][firstIndex];
-
-            // Convert victim address to binary
-            String binaryVictim = Integer.toBinaryString(Integer.parseInt(victim.address, 16));
-            // Pad with leading 0's until 32 bits
-            if (binaryVictim.length() < 32) {
-                binaryVictim = String.format("%1$32s", binaryVictim).replace(' ', '0');
-            }
-            
-            if (victim.dirty == true) { // If victim dirty, writeback
-                this.numWritebacks++;
-            }
-
-            // Inclusive policy w/ valid victim and previous level cache
-            if (inclusion == 1 && victim != null && victim.valid == true && this.prevLvl != null) {
-                // Must invalidate lower-level victim upon eviction
-                this.prevLvl.invalidate(victim.address);
-            }
-
-            // If this victim is dirty, then a write of the victim block 
-            // must be issued to the next level of the memory hierarchy
-            if (this.nextLvl != null) {
-                Command tmp;
-                if (victim.dirty == true && victim.valid == true) {
-                    tmp = new Command('w', victim.address);
-                    this.nextLvl.access(tmp, ++clockCycle);
-                    victim.dirty = false; // Mark clean, just in case
-                } // Issue read of requested block to next level
-                tmp = new Command('r', command.addr);
-                this.nextLvl.access(tmp, ++clockCycle);
-            }
-
-            victim.valid = false; // Mark invalid, just in case
-
-            if (command.cmd == 'w') {
-                block.dirty = true; // Mark new block dirty
-            } // miss-eviction
-
-            if (command.cmd == 'r') {
-                this.numReadMisses++;
-            }
-            else {
-                this.numWriteMisses++;
-            }
-
-            this.blocks[index][firstIndex] = block; // Insert block into set
-            return;
-        }
-
-        // Optimal: Replace the block that will be needed farthest in the future.
-        else if (policy == 2) {
-            pair = new AbstractMap.SimpleEntry<>(tag, index);
-            Queue<Integer> accessesQ = null; // Our magical list of future accesses
-            // This will need preprocessing the trace to determine reuse distance for 
-            // each memory reference (i.e. how many accesses later we will need this 
-            // cache block). You can then run the actual cache simulation on the output 
-            // of the preprocessing stage. Note: If there is more than one block (in a 
-            // set) that’s not going to be reused again in the trace, replace the 
-            // leftmost one that comes up from the search.
-            int optIndex = -1;
-            Integer optCycle = Integer.MIN_VALUE;
-            for (int i = 0; i < this.blocks[index].length; i++) { // search for target block  
-                cell = this.blocks[index][i];
-                // Search for target tag
-                // Non-empty block found, compare tags
-                if (cell != null) {
-                    String cellTag = calcTag(cell.address, this.tagBits);
-                    if (cellTag.equals(tag)) { // hit
-                        if (cell.valid == true) {
-                            accessesQ = this.optimalMap.get(pair);
-                            if (accessesQ.peek() != null) {
-                                cell.clockCycle = accessesQ.poll();
-                            }
-                            else {
-                                cell.clockCycle = Integer.MAX_VALUE;
-                            }
-                
-                            if (command.cmd == 'w') { // Mark matching block dirty
-                                cell.dirty = true;
-                            } // hit
-                            return;
-                        }
-                        else { // Cache hit on invalid block, immediately replace
-                            optIndex = i;
-                            break;
-                        }
-                    }
-                }
-            }
-            if (optIndex == -1) { // Only continue searching if we haven't found a match
-                for (int i = 0; i < this.blocks[index].length; i++) { // search for empty block
-                    cell = this.blocks[index][i];
-                    if (cell == null) { // empty block found
-                        if (command.cmd == 'r') {
-                            this.numReadMisses++;
-                        }
-                        else {
-                            this.numWriteMisses++;
-                        }
-    
-                        // If there is at least one invalid block in the set, then 
-                        // there is already space for the requested block X and no 
-                        // further action is required: Issue a read of the requested 
-                        // block X to the next level of the memory hierarchy and put 
-                        // the requested block X in the appropriate place in the set
-                        accessesQ = this.optimalMap.get(pair);
-                        Integer nextAccess = accessesQ.peek();
-                        if (nextAccess == null) {
-                            block.clockCycle = Integer.MAX_VALUE;
-                        }
-                        else {
-                            block.clockCycle = accessesQ.poll(); // Do one more time to get next access
-                        }
-
-                        if (this.nextLvl != null) {
-                            Command tmp = new Command('r', command.addr);
-                            this.nextLvl.access(tmp, ++clockCycle);
-                        }
-                        if (command.cmd == 'w') { // Mark new block dirty
-                            block.dirty = true;
-                        } // miss
-    
-                        this.blocks[index][i] = block; // Insert block into set
-
-                        return;
-                    }
-                }
-                for (int i = 0; i < this.blocks[index].length; i++) { // search for invalid or latest used block
-                    cell = this.blocks[index][i];
-
-                    if (cell.clockCycle <= clockCycle) { // Update next access
-                        String cellTag = calcTag(cell.address, this.tagBits);
-                        int cellIndex = calcIndex(cell.address, this.tagBits, this.indexBits);
-                        Map.Entry<String, Integer> cellPair = new AbstractMap.SimpleEntry<>(cellTag, cellIndex);
-                        accessesQ = this.optimalMap.get(cellPair);
-                        Integer nextAccess = accessesQ.peek();
-                        while (nextAccess != null && nextAccess <= clockCycle) {
-                            accessesQ.poll(); // Update next access
-                            nextAccess = accessesQ.peek();
-                        }
-                        if (nextAccess == null) {
-                            cell.clockCycle = Integer.MAX_VALUE;
-                        }
-                        else {
-                            cell.clockCycle = accessesQ.poll(); // Do one more time to get next access
-                        }    
-                    }
-
-                    if (cell != null) {
-                        if (cell.valid == false) { // If invalid, must evict
-                            optIndex = i;
-                            break;
-                        }
-
-                        // Non-empty, non-matching, valid block
-                        if (cell.clockCycle == null || cell.clockCycle > optCycle) { // track LRU
-                            optIndex = i;
-                            optCycle = cell.clockCycle;
-                            if (cell.clockCycle == null) {
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-            
-            // Eviction - Evict Most distantly used block
-            victim = this.blocks[index][optIndex];
-
-            // Convert victim address to binary
-            String binaryVictim = Integer.toBinaryString(Integer.parseInt(victim.address, 16));
-            // Pad with leading 0's until 32 bits
-            if (binaryVictim.length() < 32) {
-                binaryVictim = String.format("%1$32s", binaryVictim).replace(' ', '0');
-            }
-            
-            if (victim.dirty == true) { // If victim dirty, writeback
-                this.numWritebacks++;
-            }
-
-            // Inclusive policy w/ valid victim and previous level cache
-            if (inclusion == 1 && victim != null && victim.valid == true && this.prevLvl != null) {
-                // Must invalidate lower-level victim upon eviction
-                this.prevLvl.invalidate(victim.address); 
-            }
-
-            // If this victim is dirty, then a write of the victim block 
-            // must be issued to the next level of the memory hierarchy
-            if (this.nextLvl != null) {
-                Command tmp;
-                if (victim.dirty == true && victim.valid == true) {
-                    tmp = new Command('w', victim.address);
-                    this.nextLvl.access(tmp, ++clockCycle);
-                    victim.dirty = false; // Mark clean, just in case
-                } // Issue read of requested block to next level
-                tmp = new Command('r', block.address);
-                this.nextLvl.access(tmp, ++clockCycle);
-            }
-            
-            victim.valid = false; // Mark invalid, just in case
-            
-            if (command.cmd == 'w') {
-                block.dirty = true; // Mark new block dirty
-            } // miss-eviction
-
-            if (command.cmd == 'r') {
-                this.numReadMisses++;
-            }
-            else {
-                this.numWriteMisses++;
-            }
-            
-            this.blocks[index][optIndex] = block; // Insert block into set
-            return;
-        }
-        return;
-    }
-}
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Queue;
+import java.util.SplittableRandom;
+
+public class Cache {
+    // Set index functions
+    static final int INDEX_MOD = 0; // The {indexBits} bits above the offset
+    static final int INDEX_XOR = 1; // Every {indexBits}-wide chunk of the block address XORed together
+    static final int INDEX_PRIME = 2; // Block address modulo the largest prime <= numSets
+    static final int INDEX_SKEW = 3; // Skewed-associative, each way hashes the tag differently
+
+    // Insertion policies, LRU only
+    static final int INSERT_MRU = 0; // New blocks are most recently used
+    static final int INSERT_LIP = 1; // New blocks are least recently used until their first hit
+    static final int INSERT_BIP = 2; // LIP, but MRU with probability {bipEpsilon}
+    static final int INSERT_DIP = 3; // Set dueling between MRU and BIP leader sets picks for the rest
+    static final int PSEL_MAX = 1023; // 10-bit policy selector
+
+    // Parameters passed in from command line arguments
+    int blocksize; // Used to calculate numSets
+    long cacheSize; // Used to calculate numSets, long so multi-GB caches fit
+    int assoc; // Used to calculate numSets and number of ways per set
+    int policy; // Controls type of eviction-selection method
+    int inclusion; // Controls whether L1 blocks are invalidated on L2 eviction
+    int addrBits; // Address width, up to 64
+    HashMap<Long, Queue<Integer>> optimalMap; // Keyed by block address (address >>> offsetBits)
+    Lookahead lookahead; // Bounded future for the optimal policy, null = optimalMap holds all of it
+    Hawkeye hawkeye; // Predictor of the Hawkeye policy, null for the others
+    DeadBlockPredictor deadBlock; // Bypasses or deprioritizes blocks predicted dead, usually null
+    WayPartition partition; // Per-stream way quotas of a shared cache, usually null
+
+    // Calculated from parameters
+    int numSets;
+    int offsetBits;
+    int indexBits;
+    int tagBits;
+    int indexFunction = INDEX_MOD;
+    int primeSets; // Sets in use with INDEX_PRIME
+    int[] sets; // Per way, the set the current access maps to (see locate)
+    int stream; // Stream of the current access, passed down with its requests
+    int insertion = INSERT_MRU;
+    double bipEpsilon;
+    SplittableRandom random; // BIP's coin, seeded so runs repeat
+    int psel; // DIP: counts up on MRU-leader misses, down on BIP-leader misses
+    int leaderSpacing; // DIP: one leader set of each kind per {leaderSpacing} sets
+    int sectors = 1; // Sectors per line, each fetched and written back on its own, 1 = not sectored
+    int sectorBits; // Address bits below the sector index
+    long[] sectorValid; // Per line [set * assoc + way], a bit per sector held, sectored caches only
+    long[] sectorDirty; // ...and per sector written
+
+    int level; // For easy printing
+    // References to connected cache blocks
+    Cache nextLvl; // null means connected to main memory
+    Cache prevLvl; // null means L1 cache
+    Cache prevInstr; // L1I of a split front end, invalidated along with prevLvl, usually null
+    LineStore lines; // Actual block storage
+    TagMatcher matcher; // Tag search over a HeapLineStore, null = plain loop
+    MissStream missStream; // Records requests sent to the next level, usually null
+    Dram memory; // Main memory model, usually null (memory is then only counted)
+
+    // Performance tracking
+    int numReads;
+    int numReadMisses;
+    int numWrites;
+    int numWriteMisses;
+    int numWritebacks;
+    int numInvalWritebacks; // Writebacks to main memory only from invalidation
+    int[] streamAccesses; // Per stream of merged traces, null for a single trace
+    int[] streamMisses;
+    MissClassifier classifier; // null unless 3C classification is enabled
+
+    public Cache(int blocksize, long cacheSize, int assoc, int policy, int inclusion, int addrBits, boolean offHeap, int level, Cache nextLvl, Cache prevLevel, HashMap<Long, Queue<Integer>> optimalMap) {
+        this.blocksize = blocksize;
+        this.cacheSize = cacheSize;
+        this.assoc = assoc;
+        this.policy = policy;
+        this.inclusion = inclusion;
+        this.addrBits = addrBits;
+        this.level = level;
+        this.nextLvl = nextLvl;
+        this.prevLvl = prevLevel;
+        this.optimalMap = optimalMap;
+
+        this.numReads = 0;
+        this.numReadMisses = 0;
+        this.numWrites = 0;
+        this.numWriteMisses = 0;
+        this.numWritebacks = 0;
+        this.numInvalWritebacks = 0;
+
+        if (assoc > 0 && blocksize > 0) {
+            this.numSets = (int)(cacheSize / ((long)assoc * blocksize));
+        }
+        else {
+            this.numSets = 0;
+        }
+
+        this.offsetBits = (int)(Math.log(blocksize) / Math.log(2));
+        this.indexBits = (int)(Math.log(this.numSets) / Math.log(2));
+        this.tagBits = addrBits - this.offsetBits - this.indexBits;
+
+        if (offHeap) {
+            this.lines = new OffHeapLineStore(this.numSets, assoc);
+        }
+        else {
+            this.lines = new HeapLineStore(this.numSets, assoc);
+        }
+        this.sets = new int[Math.max(assoc, 0)];
+        if (policy == 3) {
+            this.hawkeye = new Hawkeye(this.numSets, assoc, this.offsetBits);
+        }
+    }
+
+    // Input: One of the INDEX_ constants
+    // Output: Void, later accesses use that index function
+    public void setIndexFunction(int indexFunction) {
+        this.indexFunction = indexFunction;
+        this.primeSets = Math.max(this.numSets, 1);
+        while (this.primeSets > 2 && !isPrime(this.primeSets)) {
+            this.primeSets--;
+        }
+    }
+
+    // Input: One of the INSERT_ constants, BIP's MRU probability and a seed
+    // Output: Void, later fills use that insertion policy
+    public void setInsertion(int insertion, double bipEpsilon, long seed) {
+        this.insertion = insertion;
+        this.bipEpsilon = bipEpsilon;
+        this.random = new SplittableRandom(seed);
+        this.psel = (PSEL_MAX + 1) / 2;
+        // 32 leaders of each kind from 1024 sets up, one set in 32 of each below,
+        // so nearly every set follows the winner
+        int leaders = Math.min(32, Math.max(1, this.numSets / 32));
+        this.leaderSpacing = Math.max(1, this.numSets / leaders);
+    }
+
+    // Input: Sectors per line, a power of two up to 64 and at most blocksize
+    // Output: Void, lines keep one tag but fetch and write back sector by sector
+    public void setSectors(int sectors) {
+        this.sectors = sectors;
+        this.sectorBits = this.offsetBits - Integer.numberOfTrailingZeros(sectors);
+        if (sectors > 1) {
+            this.sectorValid = new long[this.numSets * this.assoc];
+            this.sectorDirty = new long[this.numSets * this.assoc];
+        }
+    }
+
+    static boolean isPrime(int n) {
+        for (int d = 2; (long)d * d <= n; d++) {
+            if (n % d == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Clears performance counters without touching block state, used to
+    // exclude warmup references from the reported statistics
+    public void resetStats() {
+        this.numReads = 0;
+        this.numReadMisses = 0;
+        this.numWrites = 0;
+        this.numWriteMisses = 0;
+        this.numWritebacks = 0;
+        this.numInvalWritebacks = 0;
+        if (this.streamAccesses != null) {
+            Arrays.fill(this.streamAccesses, 0);
+            Arrays.fill(this.streamMisses, 0);
+        }
+        if (this.classifier != null) {
+            this.classifier.resetStats();
+        }
+        if (this.deadBlock != null) {
+            this.deadBlock.resetStats();
+        }
+        if (this.partition != null) {
+            this.partition.resetStats();
+        }
+    }
+
+    // Input: 'r', 'w' or 'i' (an instruction fetch, a read)
+    // Output: Void, counts one miss (and classifies it when enabled)
+    void countMiss(char cmd) {
+        if (cmd != 'w') {
+            this.numReadMisses++;
+        }
+        else {
+            this.numWriteMisses++;
+        }
+        if (this.classifier != null) {
+            this.classifier.classify();
+        }
+        if (this.partition != null) {
+            this.partition.misses[this.partition.streamOf(this.stream)]++;
+        }
+        if (this.streamMisses != null) {
+            this.streamMisses[this.stream]++;
+        }
+    }
+
+    // Input: A block's address
+    // Output: Only the block's tag (the top {tagBits} address bits, or the
+    // quotient of the modulo for INDEX_PRIME)
+    public long calcTag(long addr) {
+        if (this.indexFunction == INDEX_PRIME) {
+            return Long.divideUnsigned(addr >>> this.offsetBits, this.primeSets);
+        }
+        if (this.tagBits == 0) {
+            return 0;
+        }
+        return addr >>> (this.offsetBits + this.indexBits);
+    }
+    
+    // Input: A block's address
+    // Output: Only the block's index (the {indexBits} bits above the offset
+    // with INDEX_MOD, way 0's set for a skewed cache)
+    public int calcIndex(long addr) {
+        return setOf(addr >>> this.offsetBits, 0);
+    }
+
+    // Input: A block address and a way
+    // Output: The set the block maps to in that way (every way agrees unless
+    // the cache is skewed)
+    int setOf(long block, int way) {
+        long mask = (1L << this.indexBits) - 1;
+        switch (this.indexFunction) {
+            case INDEX_XOR: {
+                long index = 0;
+                for (long rest = block; rest != 0 && this.indexBits > 0; rest >>>= this.indexBits) {
+                    index ^= rest & mask;
+                }
+                return (int)index;
+            }
+            case INDEX_PRIME:
+                return (int)Long.remainderUnsigned(block, this.primeSets);
+            case INDEX_SKEW: {
+                if (this.indexBits == 0) {
+                    return 0;
+                }
+                // Tag bits scrambled by a per-way multiplicative hash, XORed into the plain index
+                long hash = ((block >>> this.indexBits) ^ (way * 0x9E3779B97F4A7C15L)) * 0xBF58476D1CE4E5B9L;
+                return (int)((block ^ (hash >>> (64 - this.indexBits))) & mask);
+            }
+            default:
+                return (int)(block & mask);
+        }
+    }
+
+    // Input: A block address
+    // Output: {sets}, filled with the block's set in every way
+    int[] locate(long block) {
+        if (this.indexFunction == INDEX_SKEW) {
+            for (int i = 0; i < this.assoc; i++) {
+                this.sets[i] = setOf(block, i);
+            }
+        }
+        else {
+            Arrays.fill(this.sets, setOf(block, 0));
+        }
+        return this.sets;
+    }
+
+    // Input: A hex String address as found in a trace and the address width
+    // Output: The address, with bits above {addrBits} dropped
+    public static long parseAddr(String hexAddr, int addrBits) {
+        long addr = Long.parseUnsignedLong(hexAddr, 16);
+        if (addrBits < 64) {
+            addr &= (1L << addrBits) - 1;
+        }
+        return addr;
+    }
+
+    // On L2 eviction (happens when read or write request misses at the
+    // L2 cache and the requested block needs to be allocated). When a 
+    // victim block in the L2 cache needs to be evicted, the L2 cache 
+    // must invalidate the corresponding block in L1 as well (assuming 
+    // it exists there). If the L1 block that needs to be invalidated is 
+    // dirty, a write of the block will be issued to the main memory directly.
+    // Input: A block's address
+    // Output: true if a valid copy was found, marks the block passed in as invalid
+    public boolean invalidate(long address) {
+        // Get block's index. Computed per way without locate(), this can run in
+        // the middle of this cache's own access.
+        long target = address >>> this.offsetBits;
+        boolean found = false;
+        
+        // Iterate through every block in the {index} set
+        for (int i = 0; i < this.assoc; i++) {
+            int index = setOf(target, i);
+            // Compare current block to target block
+            if (this.lines.block(index, i) == target && this.lines.present(index, i)) {
+                found |= this.lines.valid(index, i);
+                int flags = this.lines.flags(index, i) & ~LineStore.VALID; // Invalidate block
+                if ((flags & LineStore.DIRTY) != 0) { // If dirty, writeback to main memory
+                    if (this.sectorDirty != null) { // Each dirty sector on its own
+                        long dirty = this.sectorDirty[index * this.assoc + i];
+                        this.numInvalWritebacks += Long.bitCount(dirty);
+                        for (int s = 0; s < this.sectors && this.memory != null; s++) {
+                            if ((dirty & (1L << s)) != 0) {
+                                this.memory.access('w', (target << this.offsetBits) | ((long)s << this.sectorBits));
+                            }
+                        }
+                        this.sectorDirty[index * this.assoc + i] = 0;
+                    }
+                    else {
+                        this.numInvalWritebacks++;
+                        if (this.memory != null) {
+                            this.memory.access('w', address);
+                        }
+                    }
+                    flags &= ~LineStore.DIRTY; // Mark clean to avoid future writebacks
+                }
+                this.lines.setFlags(index, i, flags);
+            }
+        }
+        return found;
+    }
+
+    // Input: A Command with an address and 'r', 'w' or 'i' cmd, an int clockCycle
+    // Output: Void
+    public void access(Command command, int clockCycle) {
+        if (command.cmd != 'w') {
+            this.numReads++;
+        }
+        else {
+            this.numWrites++;
+        }
+        if (this.classifier != null) { // Shadow structures see every reference
+            this.classifier.touch(command.addr >>> this.offsetBits);
+        }
+
+        // Get block address and index
+        long target = command.addr >>> this.offsetBits;
+        int[] sets = locate(target); // Set of each way
+        this.stream = command.stream;
+        if (this.streamAccesses != null) {
+            this.streamAccesses[this.stream]++;
+        }
+        if (this.partition != null) { // Counted per stream, sampled sets feed the utility monitors
+            this.partition.access(sets[0], target, this.partition.streamOf(this.stream));
+        }
+        if (this.hawkeye != null) { // OPTgen sees every access to its sampled sets
+            this.hawkeye.access(sets[0], target);
+        }
+        if (this.deadBlock != null) { // So does the dead-block sampler
+            this.deadBlock.access(sets[0], target);
+        }
+        int cycle = clockCycle; // Cycle the access arrived on, clockCycle advances with each request sent down
+
+        // Write-allocate: Both write misses and read misses cause blocks to be allocated
+        // New blocks start out dirty on a write
+        int fillFlags = LineStore.PRESENT | LineStore.VALID;
+        if (command.cmd == 'w') {
+            fillFlags |= LineStore.DIRTY;
+        }
+
+        // Sector of the line the access falls in, as a bit of sectorValid/sectorDirty
+        long sector = (this.sectors > 1) ? 1L << ((command.addr >>> this.sectorBits) & (this.sectors - 1)) : 0;
+
+        int way = findBlock(sets, target); // search for target block
+        if (way >= 0) {
+            if (this.lines.valid(sets[way], way)) { // hit
+                if (this.sectorValid != null) {
+                    int line = sets[way] * this.assoc + way;
+                    if ((this.sectorValid[line] & sector) == 0) { // The line is here, the sector isn't: fetch only it
+                        countMiss(command.cmd);
+                        sendDown('r', command.addr, ++clockCycle);
+                        this.sectorValid[line] |= sector;
+                    }
+                    if (command.cmd == 'w') {
+                        this.sectorDirty[line] |= sector;
+                    }
+                }
+                hit(sets[way], way, command, cycle);
+                return;
+            }
+            // Cache hit on invalid block, immediately replace
+        }
+
+        // A block predicted dead skips this cache, unless inclusion needs it here
+        boolean dead = this.deadBlock != null && this.deadBlock.predictDead(target);
+        if (dead && this.deadBlock.bypass && this.inclusion == 0) {
+            countMiss(command.cmd);
+            this.deadBlock.recordBypass(target);
+            sendDown((command.cmd == 'w') ? 'w' : 'r', command.addr, ++clockCycle); // A write goes straight through
+            return;
+        }
+        if (dead) { // Filled where it is the set's next victim
+            fillFlags |= LineStore.DEAD;
+            this.deadBlock.numLowPriority++;
+        }
+
+        if (way == -1) { // Only continue searching if we haven't found a match
+            for (int i = 0; i < this.assoc; i++) { // search for empty block
+                int index = sets[i];
+                if (!this.lines.present(index, i)) { // empty block found
+                    countMiss(command.cmd);
+
+                    // If there is at least one invalid block in the set, then 
+                    // there is already space for the requested block X and no 
+                    // further action is required: Issue a read of the requested 
+                    // block X to the next level of the memory hierarchy and put 
+                    // the requested block X in the appropriate place in the set
+                    int meta = insertMeta(sets, i, target, cycle, dead);
+                    if (this.policy == 2) {
+                        meta = nextUse(target, cycle);
+                    }
+                    sendDown('r', command.addr, ++clockCycle);
+                    this.lines.fill(index, i, target, meta, fillFlags); // Insert block into set
+                    fillSectors(index, i, sector, command.cmd);
+                    if (this.partition != null) {
+                        this.partition.fill(index, i, this.partition.streamOf(this.stream));
+                    }
+                    return;
+                }
+            }
+            way = selectVictim(sets, cycle);
+        }
+
+        // Eviction
+        int index = sets[way];
+        long victim = this.lines.block(index, way);
+        long victimAddr = victim << this.offsetBits;
+
+        if (this.lines.dirty(index, way)) { // If victim dirty, writeback (every dirty sector of a sectored line)
+            this.numWritebacks += (this.sectorDirty != null) ? Long.bitCount(this.sectorDirty[index * this.assoc + way]) : 1;
+        }
+        
+        // Inclusive policy w/ valid victim and previous level cache
+        if (inclusion == 1 && this.lines.valid(index, way) && this.prevLvl != null) {
+            // Must invalidate lower-level victim upon eviction
+            boolean live = this.prevLvl.invalidate(victimAddr);
+            if (this.prevInstr != null) {
+                live |= this.prevInstr.invalidate(victimAddr);
+            }
+            if (live && this.deadBlock != null && (this.lines.flags(index, way) & LineStore.DEAD) != 0) {
+                this.deadBlock.numInclusionVictims++; // Dead here, still in use above
+            }
+        }
+
+        // If this victim is dirty, then a write of the victim block 
+        // must be issued to the next level of the memory hierarchy
+        int flags = this.lines.flags(index, way);
+        if ((flags & LineStore.DIRTY) != 0 && (flags & LineStore.VALID) != 0) {
+            if (this.sectorDirty != null) {
+                for (int s = 0; s < this.sectors; s++) {
+                    if ((this.sectorDirty[index * this.assoc + way] & (1L << s)) != 0) {
+                        sendDown('w', victimAddr | ((long)s << this.sectorBits), ++clockCycle);
+                    }
+                }
+            }
+            else {
+                sendDown('w', victimAddr, ++clockCycle);
+            }
+            // Mark clean, the victim stays visible to invalidations until replaced
+            this.lines.setFlags(index, way, this.lines.flags(index, way) & ~LineStore.DIRTY);
+        } // Issue read of requested block to next level
+        sendDown('r', command.addr, ++clockCycle);
+
+        countMiss(command.cmd);
+
+        // The optimal policy refreshes this value lazily, see selectVictim
+        this.lines.fill(index, way, target, insertMeta(sets, way, target, cycle, dead), fillFlags); // Insert block into set
+        fillSectors(index, way, sector, command.cmd);
+        if (this.partition != null) {
+            this.partition.fill(index, way, this.partition.streamOf(this.stream));
+        }
+    }
+
+    // Input: A line just filled, the sector fetched into it and the command
+    // Output: Void, the line holds only that sector, dirty on a write
+    void fillSectors(int index, int way, long sector, char cmd) {
+        if (this.sectorValid != null) {
+            this.sectorValid[index * this.assoc + way] = sector;
+            this.sectorDirty[index * this.assoc + way] = (cmd == 'w') ? sector : 0;
+        }
+    }
+
+    // Input: 'r' or 'w', an address and the cycle to issue it on
+    // Output: Void, passes the request to the next level of the hierarchy
+    // (if any) and records it when a miss stream is being written
+    void sendDown(char cmd, long addr, int clockCycle) {
+        if (this.missStream != null) {
+            this.missStream.record(cmd, addr, clockCycle);
+        }
+        if (this.nextLvl != null) {
+            Command tmp = new Command(cmd, addr, this.stream);
+            this.nextLvl.access(tmp, clockCycle);
+        }
+        else if (this.memory != null) {
+            this.memory.access(cmd, addr, clockCycle);
+        }
+    }
+
+    // Input: The set of each way and a block address
+    // Output: The first non-empty way holding the block, or -1
+    int findBlock(int[] sets, long target) {
+        if (this.matcher != null && this.indexFunction != INDEX_SKEW) { // Ways of one set are contiguous
+            int index = sets[0];
+            int way = this.matcher.find(((HeapLineStore)this.lines).blocks, index * this.assoc, this.assoc, target);
+            if (way < 0 || this.lines.present(index, way)) {
+                return way;
+            }
+        }
+        for (int i = 0; i < this.assoc; i++) {
+            // Non-empty block found, compare block addresses
+            if (this.lines.block(sets[i], i) == target && this.lines.present(sets[i], i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Input: The set of each way, the way about to be filled on a miss, the
+    // new block, the cycle and whether the block is predicted dead
+    // Output: The new block's replacement value: the cycle (MRU position), or
+    // below every other block of its set (LRU position) when the insertion
+    // policy or the dead-block prediction says so. Under Hawkeye, its age.
+    int insertMeta(int[] sets, int way, long block, int cycle, boolean dead) {
+        if (this.hawkeye != null) {
+            if (dead || !this.hawkeye.friendly(block)) {
+                return Hawkeye.MAX_AGE;
+            }
+            for (int i = 0; i < this.assoc; i++) { // Older friendly lines age, short of averse
+                if (i != way && this.lines.present(sets[i], i) && this.lines.meta(sets[i], i) < Hawkeye.MAX_AGE - 1) {
+                    this.lines.setMeta(sets[i], i, this.lines.meta(sets[i], i) + 1);
+                }
+            }
+            return 0;
+        }
+        boolean mru;
+        switch (dead ? INSERT_LIP : this.insertion) {
+            case INSERT_LIP:
+                mru = false;
+                break;
+            case INSERT_BIP:
+                mru = this.random.nextDouble() < this.bipEpsilon;
+                break;
+            case INSERT_DIP: {
+                int offset = sets[0] % this.leaderSpacing;
+                if (offset == 0) { // MRU leader, always MRU
+                    this.psel = Math.min(this.psel + 1, PSEL_MAX);
+                    mru = true;
+                }
+                else if (offset == this.leaderSpacing / 2) { // BIP leader
+                    this.psel = Math.max(this.psel - 1, 0);
+                    mru = this.random.nextDouble() < this.bipEpsilon;
+                }
+                else { // Follower, BIP once MRU leaders miss more
+                    mru = this.psel <= PSEL_MAX / 2 || this.random.nextDouble() < this.bipEpsilon;
+                }
+                break;
+            }
+            default:
+                return cycle;
+        }
+        if (mru) {
+            return cycle;
+        }
+        int lowest = cycle;
+        for (int i = 0; i < this.assoc; i++) {
+            if (i != way && this.lines.present(sets[i], i)) {
+                lowest = Math.min(lowest, this.lines.meta(sets[i], i));
+            }
+        }
+        return lowest - 1;
+    }
+
+    // Input: The set and way of a valid matching block, the Command and its cycle
+    // Output: Void, updates replacement state and dirty bit
+    void hit(int index, int way, Command command, int cycle) {
+        if ((this.lines.flags(index, way) & LineStore.DEAD) != 0) { // Predicted dead, but reused
+            this.deadBlock.numLowPriorityHits++;
+            this.lines.setFlags(index, way, this.lines.flags(index, way) & ~LineStore.DEAD);
+        }
+        // LRU: Replace the block that was least recently touched (updated on hits and misses).
+        if (this.policy == 0) {
+            this.lines.setMeta(index, way, cycle); // Update LRU
+        }
+        // FIFO: Replace the block that was placed first in the cache, hits change nothing.
+        // Hawkeye: Friendly blocks become youngest, averse ones stay first to go.
+        else if (this.policy == 3) {
+            this.lines.setMeta(index, way, this.hawkeye.friendly(command.addr >>> this.offsetBits) ? 0 : Hawkeye.MAX_AGE);
+        }
+        // Optimal: Replace the block that will be needed farthest in the future.
+        else if (this.policy == 2) {
+            this.lines.setMeta(index, way, nextUse(command.addr >>> this.offsetBits, cycle));
+        }
+        if (command.cmd == 'w') { // Mark matching block dirty
+            this.lines.setFlags(index, way, this.lines.flags(index, way) | LineStore.DIRTY);
+        }
+    }
+
+    // Input: A block address and the cycle of the access asking (optimal only)
+    // Output: The block's first trace reference after that cycle, or
+    // Integer.MAX_VALUE if there is none. Full and bounded lookahead share
+    // this rule, so they agree once the window covers the trace. Only
+    // references already passed leave the queue: an access that isn't a
+    // reference of the block (a writeback from L1) mustn't use one up.
+    int nextUse(long block, int cycle) {
+        if (this.lookahead != null) {
+            return this.lookahead.nextUse(block, cycle);
+        }
+        Queue<Integer> accessesQ = this.optimalMap.get(block); // Our magical list of future accesses
+        Integer nextAccess = accessesQ.peek();
+        while (nextAccess != null && nextAccess <= cycle) {
+            accessesQ.poll();
+            nextAccess = accessesQ.peek();
+        }
+        return (nextAccess == null) ? Integer.MAX_VALUE : nextAccess;
+    }
+
+    // Input: The set of each way (all full) and the current cycle
+    // Output: The way to evict; for a skewed cache the candidates are the
+    // block's line in every way
+    int selectVictim(int[] sets, int cycle) {
+        int victimWay = -1;
+        if (this.policy == 2) {
+            // This will need preprocessing the trace to determine reuse distance for 
+            // each memory reference (i.e. how many accesses later we will need this 
+            // cache block). You can then run the actual cache simulation on the output 
+            // of the preprocessing stage. Note: If there is more than one block (in a 
+            // set) that’s not going to be reused again in the trace, replace the 
+            // leftmost one that comes up from the search.
+            int optCycle = Integer.MIN_VALUE;
+            for (int i = 0; i < this.assoc; i++) { // search for invalid or latest used block
+                // Refresh every stale value; with a window "never" too, the use may have entered it since
+                int meta = this.lines.meta(sets[i], i);
+                if (meta <= cycle || (meta == Integer.MAX_VALUE && this.lookahead != null)) { // Update next access
+                    this.lines.setMeta(sets[i], i, nextUse(this.lines.block(sets[i], i), cycle));
+                }
+
+                if (!this.lines.valid(sets[i], i)) { // If invalid, must evict
+                    return i;
+                }
+
+                // Non-empty, non-matching, valid block
+                if (this.lines.meta(sets[i], i) > optCycle) { // track farthest next use
+                    victimWay = i;
+                    optCycle = this.lines.meta(sets[i], i);
+                }
+            }
+            return victimWay;
+        }
+
+        if (this.policy == 3) { // An averse line, else the oldest friendly one
+            int oldest = -1;
+            for (int i = 0; i < this.assoc; i++) {
+                if (!this.lines.valid(sets[i], i) || this.lines.meta(sets[i], i) == Hawkeye.MAX_AGE) {
+                    return i;
+                }
+                if (this.lines.meta(sets[i], i) > oldest) {
+                    victimWay = i;
+                    oldest = this.lines.meta(sets[i], i);
+                }
+            }
+            this.hawkeye.detrain(this.lines.block(sets[victimWay], victimWay)); // Predicted friendly, but evicted
+            return victimWay;
+        }
+
+        if (this.partition != null) { // Only among the lines the stream's quota allows
+            victimWay = this.partition.victim(this.lines, sets, this.partition.streamOf(this.stream));
+            if (victimWay >= 0) {
+                return victimWay;
+            }
+        }
+
+        // LRU and FIFO both evict the smallest cycle, last touched or first placed
+        int lruCycle = Integer.MAX_VALUE;
+        for (int i = 0; i < this.assoc; i++) { // search for invalid or LRU block
+            if (!this.lines.valid(sets[i], i)) { // If invalid, must evict
+                return i;
+            }
+
+            // Non-empty, non-matching, valid block
+            if (this.lines.meta(sets[i], i) < lruCycle) { // track LRU
+                victimWay = i;
+                lruCycle = this.lines.meta(sets[i], i);
+            }
+        }
+        return victimWay;
+    }
+}
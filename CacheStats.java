@@ -0,0 +1,64 @@
+// Last sampled counters of one cache level. The simulating thread never
+// touches this object; SimulationMonitor's sampler copies the plain Cache
+// fields into it (racy reads, at worst one sample stale) and JMX clients read
+// the volatile copies.
+public class CacheStats implements CacheStatsMBean {
+    Cache cache;
+
+    volatile int reads;
+    volatile int readMisses;
+    volatile int writes;
+    volatile int writeMisses;
+    volatile int writebacks;
+    volatile int invalWritebacks;
+
+    public CacheStats(Cache cache) {
+        this.cache = cache;
+    }
+
+    // Called from the sampler thread only
+    void sample() {
+        this.reads = this.cache.numReads;
+        this.readMisses = this.cache.numReadMisses;
+        this.writes = this.cache.numWrites;
+        this.writeMisses = this.cache.numWriteMisses;
+        this.writebacks = this.cache.numWritebacks;
+        this.invalWritebacks = this.cache.numInvalWritebacks;
+    }
+
+    public int getLevel() {
+        return this.cache.level;
+    }
+
+    public int getReads() {
+        return this.reads;
+    }
+
+    public int getReadMisses() {
+        return this.readMisses;
+    }
+
+    public int getWrites() {
+        return this.writes;
+    }
+
+    public int getWriteMisses() {
+        return this.writeMisses;
+    }
+
+    public int getWritebacks() {
+        return this.writebacks;
+    }
+
+    public int getInvalWritebacks() {
+        return this.invalWritebacks;
+    }
+
+    public double getMissRate() {
+        int accesses = this.reads + this.writes;
+        if (accesses == 0) {
+            return 0;
+        }
+        return (double)(this.readMisses + this.writeMisses) / accesses;
+    }
+}
@@ -0,0 +1,11 @@
+// JMX view of one cache level's counters, see CacheStats
+public interface CacheStatsMBean {
+    int getLevel();
+    int getReads();
+    int getReadMisses();
+    int getWrites();
+    int getWriteMisses();
+    int getWritebacks();
+    int getInvalWritebacks();
+    double getMissRate();
+}
@@ -0,0 +1,153 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+
+// Binary snapshot of the whole cache hierarchy at a given trace position.
+// Layout: header (magic, version, position, level count), then per level the
+// geometry (checked on restore), the performance counters, one record per
+// way and, for the optimal policy, the remaining future accesses per block.
+// Empty ways take a single byte so sparse caches stay small.
+public class Checkpoint {
+    static final int MAGIC = 0x53434B50; // "SCKP"
+    static final int VERSION = 3;
+
+    // Input: A file name, the number of trace references already simulated and
+    // every cache level in order (L1 first)
+    // Output: Void, writes the snapshot to the file
+    public static void save(String file, int position, Cache... levels) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            save(out, position, levels);
+        }
+    }
+
+    // Same as above, appending the snapshot to an open stream
+    public static void save(DataOutputStream out, int position, Cache... levels) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(position);
+        out.writeInt(levels.length);
+
+        for (Cache cache : levels) {
+            out.writeInt(cache.blocksize);
+            out.writeLong(cache.cacheSize);
+            out.writeInt(cache.assoc);
+            out.writeInt(cache.policy);
+            out.writeInt(cache.inclusion);
+            out.writeInt(cache.indexFunction);
+
+            out.writeInt(cache.numReads);
+            out.writeInt(cache.numReadMisses);
+            out.writeInt(cache.numWrites);
+            out.writeInt(cache.numWriteMisses);
+            out.writeInt(cache.numWritebacks);
+            out.writeInt(cache.numInvalWritebacks);
+
+            for (int i = 0; i < cache.numSets; i++) {
+                for (int j = 0; j < cache.assoc; j++) {
+                    // State byte uses the LineStore flag bits
+                    int state = cache.lines.flags(i, j);
+                    if ((state & LineStore.PRESENT) == 0) {
+                        out.writeByte(0);
+                        continue;
+                    }
+                    out.writeByte(state);
+                    out.writeInt(cache.lines.meta(i, j));
+                    out.writeLong(cache.lines.block(i, j) << cache.offsetBits);
+                }
+            }
+
+            // Optimal policy: how far each block's future-access queue has
+            // been consumed, so a restored run picks up the same state
+            if (cache.optimalMap == null) {
+                out.writeInt(-1);
+                continue;
+            }
+            out.writeInt(cache.optimalMap.size());
+            for (Map.Entry<Long, Queue<Integer>> entry : cache.optimalMap.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeInt(entry.getValue().size());
+            }
+        }
+    }
+
+    // Input: A file name and every cache level in order (L1 first), already
+    // constructed with the same configuration the snapshot was taken with
+    // Output: The trace position the snapshot was taken at; block state and
+    // counters of every level are overwritten
+    public static int restore(String file, Cache... levels) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            return restore(in, levels);
+        }
+    }
+
+    // Same as above, reading the snapshot from an open stream
+    public static int restore(DataInputStream in, Cache... levels) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a cache checkpoint");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported checkpoint version " + version);
+        }
+        int position = in.readInt();
+        int numLevels = in.readInt();
+        if (numLevels != levels.length) {
+            throw new IOException("checkpoint has " + numLevels + " levels, expected " + levels.length);
+        }
+
+        for (Cache cache : levels) {
+            int blocksize = in.readInt();
+            long cacheSize = in.readLong();
+            int assoc = in.readInt();
+            int policy = in.readInt();
+            int inclusion = in.readInt();
+            int indexFunction = in.readInt();
+            if (blocksize != cache.blocksize || cacheSize != cache.cacheSize || assoc != cache.assoc
+                    || policy != cache.policy || inclusion != cache.inclusion || indexFunction != cache.indexFunction) {
+                throw new IOException("L" + cache.level + " configuration does not match checkpoint");
+            }
+
+            cache.numReads = in.readInt();
+            cache.numReadMisses = in.readInt();
+            cache.numWrites = in.readInt();
+            cache.numWriteMisses = in.readInt();
+            cache.numWritebacks = in.readInt();
+            cache.numInvalWritebacks = in.readInt();
+
+            for (int i = 0; i < cache.numSets; i++) {
+                for (int j = 0; j < cache.assoc; j++) {
+                    int state = in.readUnsignedByte();
+                    if ((state & LineStore.PRESENT) == 0) {
+                        cache.lines.fill(i, j, -1L, 0, 0);
+                        continue;
+                    }
+                    int meta = in.readInt();
+                    long address = in.readLong();
+                    cache.lines.fill(i, j, address >>> cache.offsetBits, meta, state);
+                }
+            }
+
+            // The optimal map was rebuilt from the whole trace, drop the
+            // accesses the snapshotted run had already consumed
+            int entries = in.readInt();
+            for (int e = 0; e < entries; e++) {
+                long block = in.readLong();
+                int remaining = in.readInt();
+                Queue<Integer> accessesQ = (cache.optimalMap != null) ? cache.optimalMap.get(block) : null;
+                if (accessesQ == null) {
+                    throw new IOException("L" + cache.level + " optimal policy state does not match the trace");
+                }
+                while (accessesQ.size() > remaining) {
+                    accessesQ.poll();
+                }
+            }
+        }
+        return position;
+    }
+}
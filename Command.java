@@ -1,13 +1,19 @@
-public class Command {
-	char cmd;
-	String addr;
-	
-	public Command(char cmd, String addr) {
-		this.cmd = cmd; // 'r' or 'w'
-		this.addr = addr; // Hex string address
-	}
-
-    public String toString() {
-        return "command: " + cmd + " address: " + addr;
-    }
-}
+public class Command {
+	char cmd;
+	long addr;
+	int stream; // Program that issued it, 0 unless the trace is tagged
+	
+	public Command(char cmd, long addr) {
+		this.cmd = cmd; // 'r', 'w' or 'i' (instruction fetch)
+		this.addr = addr;
+	}
+
+	public Command(char cmd, long addr, int stream) {
+		this(cmd, addr);
+		this.stream = stream;
+	}
+
+    public String toString() {
+        return "command: " + cmd + " address: " + Long.toHexString(addr);
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.Arrays;
+
+// Sampling dead-block prediction (Khan, Tian and Jimenez, "Sampling Dead
+// Block Prediction for Last-Level Caches", MICRO 2010) for the L2. A sampler
+// shadows a few sets with its own LRU tag arrays: a sampler entry that is hit
+// trains its signature's counter toward live, and every entry evicted from
+// the sampler, hit before or not, trains it toward dead, since its last
+// access turned out to be its last touch. A block whose counter is saturated
+// is predicted dead on arrival, and the L2 either doesn't allocate it
+// (bypass) or inserts it where it is the next victim (low priority).
+// Traces carry no PCs, so signatures hash the block's 4 KB region.
+// An inclusive L2 must hold every L1 block, so there bypass falls back to
+// low-priority insertion.
+public class DeadBlockPredictor {
+    static final int MAX_SAMPLED_SETS = 32;
+    static final int COUNTER_BITS = 12; // 4096 counters
+    static final int COUNTER_MAX = 3; // 2-bit, dead when saturated
+    static final int REGION_BITS = 12;
+    static final int MAX_BYPASS_ENTRIES = 1 << 14; // Remembered bypasses, 128 KB at most
+
+    boolean bypass; // false = low-priority insertion
+    int assoc;
+    int regionShift;
+    int sampleSpacing;
+    byte[] counters = new byte[1 << COUNTER_BITS];
+
+    // Sampler, indexed [sampled set * assoc + way]
+    long[] samplerBlocks; // -1 = empty
+    long[] samplerUsed;
+    long clock;
+
+    // Recently bypassed blocks, direct-mapped, to catch bypasses that were
+    // wrong. Bounded, so the predictor's memory doesn't grow with the cache.
+    long[] bypassed;
+
+    // Performance tracking
+    int numBypasses;
+    int numLowPriority; // Low-priority insertions
+    int numBypassMispredictions; // Bypassed blocks asked for again while still remembered
+    int numLowPriorityHits; // Low-priority blocks that were hit after all
+    int numInclusionVictims; // Predicted-dead L2 evictions that invalidated a live L1 copy
+
+    public DeadBlockPredictor(boolean bypass, int numSets, int assoc, int offsetBits) {
+        if (numSets < 1 || assoc < 1) {
+            throw new IllegalArgumentException("Dead-block prediction needs a cache with at least one set");
+        }
+        this.bypass = bypass;
+        this.assoc = assoc;
+        this.regionShift = Math.max(0, REGION_BITS - offsetBits);
+        int sampled = Math.min(MAX_SAMPLED_SETS, numSets);
+        this.sampleSpacing = numSets / sampled;
+        this.samplerBlocks = new long[sampled * assoc];
+        this.samplerUsed = new long[sampled * assoc];
+        Arrays.fill(this.samplerBlocks, -1L);
+        this.bypassed = new long[(int)Math.min((long)numSets * assoc, MAX_BYPASS_ENTRIES)];
+        Arrays.fill(this.bypassed, -1L);
+    }
+
+    // Clears performance counters, training stays
+    public void resetStats() {
+        this.numBypasses = 0;
+        this.numLowPriority = 0;
+        this.numBypassMispredictions = 0;
+        this.numLowPriorityHits = 0;
+        this.numInclusionVictims = 0;
+    }
+
+    // Input: The set an access maps to and its block address
+    // Output: Void, trains the counters if the set is sampled
+    void access(int set, long block) {
+        if (set % this.sampleSpacing != 0 || (set / this.sampleSpacing) * this.assoc >= this.samplerBlocks.length) {
+            return;
+        }
+        int base = (set / this.sampleSpacing) * this.assoc;
+        this.clock++;
+        int victim = base;
+        for (int i = base; i < base + this.assoc; i++) {
+            if (this.samplerBlocks[i] == block) { // Reused: live
+                train(block, false);
+                this.samplerUsed[i] = this.clock;
+                return;
+            }
+            if (this.samplerUsed[i] < this.samplerUsed[victim]) {
+                victim = i;
+            }
+        }
+        if (this.samplerBlocks[victim] != -1L) { // Last touch before eviction: dead
+            train(this.samplerBlocks[victim], true);
+        }
+        this.samplerBlocks[victim] = block;
+        this.samplerUsed[victim] = this.clock;
+    }
+
+    void train(long block, boolean dead) {
+        int c = signature(block);
+        if (dead && this.counters[c] < COUNTER_MAX) {
+            this.counters[c]++;
+        }
+        else if (!dead && this.counters[c] > 0) {
+            this.counters[c]--;
+        }
+    }
+
+    // Input: A block address missing in the cache
+    // Output: true if the block is predicted to see no reuse before eviction.
+    // Also counts a misprediction if the block was bypassed recently.
+    boolean predictDead(long block) {
+        int slot = bypassSlot(block);
+        if (this.bypassed[slot] == block) {
+            this.numBypassMispredictions++;
+            this.bypassed[slot] = -1L;
+        }
+        return this.counters[signature(block)] == COUNTER_MAX;
+    }
+
+    // Input: A block sent past the cache instead of allocated
+    void recordBypass(long block) {
+        this.numBypasses++;
+        this.bypassed[bypassSlot(block)] = block;
+    }
+
+    int bypassSlot(long block) {
+        return (int)Long.remainderUnsigned(block * 0x9E3779B97F4A7C15L, this.bypassed.length);
+    }
+
+    int signature(long block) {
+        return (int)(((block >>> this.regionShift) * 0x9E3779B97F4A7C15L) >>> (64 - COUNTER_BITS));
+    }
+}
@@ -0,0 +1,348 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Main memory behind the last cache level: channels of ranks of banks, one
+// row buffer per bank, an open- or closed-row policy, FR-FCFS (or FCFS)
+// scheduling of a bounded request queue per channel, and periodic refresh.
+// With open rows addresses map as row:rank:bank:channel:column, so
+// neighbouring blocks share a row; with closed rows as
+// row:column:rank:bank:channel:block offset, so they spread over the banks.
+// Time is counted in DRAM clocks; the caches' clock cycles (one per trace
+// reference, plus one per request sent down) arrive {gap} clocks apart.
+// The model is event-driven: nothing happens per clock. A channel only
+// schedules when a request arrives or at finish(), jumping from one
+// decision to the next, one per data burst slot (later while the data bus
+// is backed up), so the cost is a queue scan per memory request.
+public class Dram {
+    static final int FCFS = 0;
+    static final int FR_FCFS = 1;
+
+    // Geometry and policy
+    int channels = 1;
+    int ranks = 2;
+    int banks = 8;
+    int rowBytes = 8192; // Row buffer of a bank, across the rank's chips
+    boolean openRow = true; // false precharges after every access
+    int scheduler = FR_FCFS;
+    int queueDepth = 32; // Requests waiting per channel
+
+    // Timing in DRAM clocks, DDR3-1600 11-11-11-28 by default
+    double tCK = 1.25; // ns per clock
+    int tCL = 11;
+    int tRCD = 11;
+    int tRP = 11;
+    int tRAS = 28;
+    int tBURST = 4;
+    int tREFI = 6240; // 7.8 us between refreshes of a rank
+    int tRFC = 208; // 260 ns per refresh
+    int gap = 2; // Clocks per cache clock cycle
+
+    // Calculated from the geometry
+    int lineBits; // Cache block offset
+    int columnBits;
+    int channelBits;
+    int bankBits;
+    Channel[] channelState;
+    long now; // Latest arrival
+
+    // Performance tracking
+    long reads;
+    long writes;
+    long rowHits; // Row already open
+    long rowEmpty; // Bank precharged, activate only
+    long rowConflicts; // Another row open, precharge and activate
+    long refreshes;
+    long queueFull; // Arrivals that had to wait for a queue slot
+    long totalLatency; // Clocks from arrival to the end of the data burst
+    long readLatency;
+
+    static class Request {
+        boolean write;
+        int bank; // rank * banks + bank
+        long row;
+        long arrival;
+    }
+
+    static class Channel {
+        List<Request> queue = new ArrayList<Request>(); // Arrival order
+        long nextDecision; // Earliest clock the scheduler picks again
+        long busFree; // Data bus free from
+        long[] openRow; // Per bank, -1 when precharged
+        long[] bankReady; // Per bank, earliest next command
+        long[] activated; // Per bank, when the open row was activated
+        long[] nextRefresh; // Per rank
+    }
+
+    // Input: Comma-separated key=value settings, e.g. "channels=2,policy=closed",
+    // or null for the defaults, and the cache block size
+    // Output: The model, ready to take requests
+    public static Dram parse(String spec, int blocksize) {
+        Dram dram = new Dram();
+        dram.lineBits = Integer.numberOfTrailingZeros(blocksize);
+        if (spec != null) {
+            for (String item : spec.split(",")) {
+                String[] pair = item.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Invalid DRAM setting: " + item);
+                }
+                try {
+                    dram.set(pair[0], pair[1]);
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid DRAM setting: " + item);
+                }
+            }
+        }
+        dram.init();
+        return dram;
+    }
+
+    void set(String key, String value) {
+        switch (key) {
+            case "channels": this.channels = Integer.parseInt(value); break;
+            case "ranks": this.ranks = Integer.parseInt(value); break;
+            case "banks": this.banks = Integer.parseInt(value); break;
+            case "row": this.rowBytes = Integer.parseInt(value); break;
+            case "queue": this.queueDepth = Integer.parseInt(value); break;
+            case "tck": this.tCK = Double.parseDouble(value); break;
+            case "cl": this.tCL = Integer.parseInt(value); break;
+            case "trcd": this.tRCD = Integer.parseInt(value); break;
+            case "trp": this.tRP = Integer.parseInt(value); break;
+            case "tras": this.tRAS = Integer.parseInt(value); break;
+            case "burst": this.tBURST = Integer.parseInt(value); break;
+            case "refi": this.tREFI = Integer.parseInt(value); break;
+            case "rfc": this.tRFC = Integer.parseInt(value); break;
+            case "gap": this.gap = Integer.parseInt(value); break;
+            case "policy":
+                if (!value.equals("open") && !value.equals("closed")) {
+                    throw new IllegalArgumentException("Invalid DRAM row policy: " + value);
+                }
+                this.openRow = value.equals("open");
+                break;
+            case "sched":
+                if (!value.equals("fcfs") && !value.equals("frfcfs")) {
+                    throw new IllegalArgumentException("Invalid DRAM scheduler: " + value);
+                }
+                this.scheduler = value.equals("fcfs") ? FCFS : FR_FCFS;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid DRAM setting: " + key);
+        }
+    }
+
+    void init() {
+        if (Integer.bitCount(this.channels) != 1 || Integer.bitCount(this.ranks) != 1
+                || Integer.bitCount(this.banks) != 1 || Integer.bitCount(this.rowBytes) != 1) {
+            throw new IllegalArgumentException("DRAM channels, ranks, banks and row size must be powers of two");
+        }
+        if (this.rowBytes < (1 << this.lineBits)) {
+            throw new IllegalArgumentException("DRAM rows must hold at least one block");
+        }
+        if (this.queueDepth < 1 || this.tCK <= 0 || this.tBURST < 1 || this.tREFI < 1 || this.gap < 0) {
+            throw new IllegalArgumentException("Invalid DRAM queue depth or timing");
+        }
+        this.columnBits = Integer.numberOfTrailingZeros(this.rowBytes);
+        this.channelBits = Integer.numberOfTrailingZeros(this.channels);
+        this.bankBits = Integer.numberOfTrailingZeros(this.banks);
+        this.channelState = new Channel[this.channels];
+        for (int c = 0; c < this.channels; c++) {
+            Channel channel = new Channel();
+            int totalBanks = this.ranks * this.banks;
+            channel.openRow = new long[totalBanks];
+            channel.bankReady = new long[totalBanks];
+            channel.activated = new long[totalBanks];
+            Arrays.fill(channel.openRow, -1);
+            channel.nextRefresh = new long[this.ranks];
+            for (int r = 0; r < this.ranks; r++) { // Staggered so ranks don't refresh together
+                channel.nextRefresh[r] = (long)this.tREFI * (r + 1) / this.ranks;
+            }
+            this.channelState[c] = channel;
+        }
+    }
+
+    // Clears performance counters, rows and queued requests stay as they are
+    public void resetStats() {
+        this.reads = 0;
+        this.writes = 0;
+        this.rowHits = 0;
+        this.rowEmpty = 0;
+        this.rowConflicts = 0;
+        this.refreshes = 0;
+        this.queueFull = 0;
+        this.totalLatency = 0;
+        this.readLatency = 0;
+    }
+
+    // Input: 'r' or 'w', a byte address and the cache clock cycle it was sent on
+    // Output: Void, queues the request
+    public void access(char cmd, long addr, int cycle) {
+        enqueue(cmd == 'w', addr, (long)cycle * this.gap);
+    }
+
+    // Input: 'r' or 'w' and a byte address
+    // Output: Void, queues the request as arriving with the latest one, for
+    // writebacks that don't carry a cycle (L1 invalidations)
+    public void access(char cmd, long addr) {
+        enqueue(cmd == 'w', addr, this.now);
+    }
+
+    // Queues a request after scheduling everything that could start before it arrives
+    void enqueue(boolean write, long addr, long arrival) {
+        // Requests of one reference can carry cycles a little behind the last
+        // one's, arrivals are kept in order
+        this.now = Math.max(arrival, this.now);
+        Request request = new Request();
+        request.write = write;
+        request.arrival = this.now;
+        long rest = addr >>> (this.openRow ? this.columnBits : this.lineBits);
+        Channel channel = this.channelState[(int)(rest & (this.channels - 1))];
+        rest >>>= this.channelBits;
+        request.bank = (int)(rest & (this.banks - 1));
+        rest >>>= this.bankBits;
+        request.bank += (int)(rest & (this.ranks - 1)) * this.banks;
+        request.row = rest >>> Integer.numberOfTrailingZeros(this.ranks);
+        if (!this.openRow) { // Column bits sit between the bank bits and the row
+            request.row >>>= this.columnBits - this.lineBits;
+        }
+
+        schedule(channel, this.now);
+        if (channel.queue.size() >= this.queueDepth) { // The request waits for a slot
+            this.queueFull++;
+            while (channel.queue.size() >= this.queueDepth) {
+                issue(channel, Math.max(channel.nextDecision, channel.queue.get(0).arrival));
+            }
+        }
+        channel.queue.add(request);
+    }
+
+    // Output: Void, serves every queued request so the statistics are final
+    public void finish() {
+        for (Channel channel : this.channelState) {
+            schedule(channel, Long.MAX_VALUE);
+        }
+    }
+
+    // Input: A channel and a clock
+    // Output: Void, issues queued requests until the next decision falls at
+    // or after {until}
+    void schedule(Channel channel, long until) {
+        while (!channel.queue.isEmpty()) {
+            long t = Math.max(channel.nextDecision, channel.queue.get(0).arrival);
+            if (t >= until) {
+                return;
+            }
+            issue(channel, t);
+        }
+    }
+
+    // Input: A channel with queued requests and a clock at or after the oldest arrival
+    // Output: Void, picks one request at clock t and books its commands and data burst
+    void issue(Channel channel, long t) {
+        for (int r = 0; r < this.ranks; r++) {
+            refresh(channel, r, t);
+        }
+
+        // FR-FCFS: the oldest request to an open row of a ready bank, else the
+        // oldest request to a ready bank, else the oldest request
+        int pick = 0;
+        if (this.scheduler == FR_FCFS) {
+            int ready = -1;
+            for (int i = 0; i < channel.queue.size() && channel.queue.get(i).arrival <= t; i++) {
+                Request request = channel.queue.get(i);
+                if (channel.bankReady[request.bank] <= t) {
+                    if (channel.openRow[request.bank] == request.row) {
+                        ready = i;
+                        break;
+                    }
+                    if (ready < 0) {
+                        ready = i;
+                    }
+                }
+            }
+            pick = Math.max(ready, 0);
+        }
+        Request request = channel.queue.remove(pick);
+        int b = request.bank;
+
+        long start = Math.max(t, channel.bankReady[b]);
+        long column; // Clock of the read or write command
+        if (channel.openRow[b] == request.row) {
+            this.rowHits++;
+            column = start;
+        }
+        else if (channel.openRow[b] < 0) {
+            this.rowEmpty++;
+            channel.activated[b] = start;
+            column = start + this.tRCD;
+        }
+        else { // Bank conflict
+            this.rowConflicts++;
+            long precharge = Math.max(start, channel.activated[b] + this.tRAS);
+            channel.activated[b] = precharge + this.tRP;
+            column = channel.activated[b] + this.tRCD;
+        }
+        long data = Math.max(column + this.tCL, channel.busFree);
+        column = data - this.tCL; // Held back until its burst fits on the bus
+        long done = data + this.tBURST;
+        channel.busFree = done;
+        channel.openRow[b] = request.row;
+        channel.bankReady[b] = column + this.tBURST;
+        if (!this.openRow) { // Auto-precharge once the row has been open long enough
+            channel.openRow[b] = -1;
+            channel.bankReady[b] = Math.max(column + this.tBURST, channel.activated[b] + this.tRAS) + this.tRP;
+        }
+        // One decision per burst slot, held back while the bus is booked past
+        // the point a request that needs an activate could still follow on
+        channel.nextDecision = Math.max(t + this.tBURST, channel.busFree - this.tCL - this.tRCD);
+
+        long latency = done - request.arrival;
+        this.totalLatency += latency;
+        if (request.write) {
+            this.writes++;
+        }
+        else {
+            this.reads++;
+            this.readLatency += latency;
+        }
+    }
+
+    // Input: A channel, a rank and a clock
+    // Output: Void, performs every refresh of the rank due by clock t: all its
+    // banks are precharged and blocked for tRFC
+    void refresh(Channel channel, int rank, long t) {
+        while (channel.nextRefresh[rank] <= t) {
+            long start = channel.nextRefresh[rank];
+            for (int b = rank * this.banks; b < (rank + 1) * this.banks; b++) {
+                long idle = channel.bankReady[b];
+                if (channel.openRow[b] >= 0) {
+                    idle = Math.max(idle, channel.activated[b] + this.tRAS) + this.tRP;
+                }
+                start = Math.max(start, idle);
+            }
+            for (int b = rank * this.banks; b < (rank + 1) * this.banks; b++) {
+                channel.openRow[b] = -1;
+                channel.bankReady[b] = start + this.tRFC;
+            }
+            channel.nextRefresh[rank] += this.tREFI;
+            this.refreshes++;
+        }
+    }
+
+    // Output: Fraction of requests that found their row open
+    public double rowHitRate() {
+        long requests = this.rowHits + this.rowEmpty + this.rowConflicts;
+        return (requests > 0) ? (double)this.rowHits / requests : 0;
+    }
+
+    // Output: Average clocks from arrival to the end of the data burst, in ns
+    public double averageLatency() {
+        long requests = this.reads + this.writes;
+        return (requests > 0) ? this.totalLatency * this.tCK / requests : 0;
+    }
+
+    // Output: The same for reads only, the latency a miss sees
+    public double averageReadLatency() {
+        return (this.reads > 0) ? this.readLatency * this.tCK / this.reads : 0;
+    }
+}
@@ -0,0 +1,149 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+// Access time, energy and area of each cache level from the CACTI numbers in
+// cacti_table.csv (the CSV export of cacti_table.xls), plus the run's total
+// energy and energy-delay product.
+// Geometries missing from the table are estimated from their neighbours:
+// log(value) is interpolated linearly in log2(size), log2(blocksize) and
+// log2(assoc), one axis at a time, and extrapolated from the two nearest
+// points past the ends of the table. FA rows are assoc = size / blocksize.
+// Dynamic energy charges one access per read, write, fill and writeback.
+// The table has no leakage, so leakage power is taken as area times
+// {leakageDensity} over the run time, which is the trace length times the
+// average access time t1 + mr1 * (t2 + mr2 * missPenalty).
+public class EnergyModel {
+    static final double DEFAULT_LEAKAGE_DENSITY = 50; // mW per mm*mm
+    static final double DEFAULT_MISS_PENALTY = 100; // ns, as in the notebook
+
+    // {log2 size, log2 blocksize, log2 assoc, access time ns, energy nJ, area mm*mm}
+    List<double[]> rows = new ArrayList<double[]>();
+    double leakageDensity = DEFAULT_LEAKAGE_DENSITY;
+    double missPenalty = DEFAULT_MISS_PENALTY;
+
+    // Totals for one run, filled in by evaluate()
+    public static class Estimate {
+        double accessTime; // Average, ns
+        double area; // mm*mm, all levels
+        double l1Dynamic; // nJ
+        double l2Dynamic; // nJ
+        double leakage; // nJ, all levels
+        double total; // nJ
+        double runtime; // ns
+        double edp; // J*s
+    }
+
+    // Input: A CSV file with the cacti_table.xls columns and a header row
+    // Output: The model, holding every row of the file
+    public static EnergyModel load(String file) throws IOException {
+        EnergyModel model = new EnergyModel();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine(); // Header
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length < 7) {
+                    continue;
+                }
+                try {
+                    double size = Double.parseDouble(fields[0].trim());
+                    double blocksize = Double.parseDouble(fields[2].trim());
+                    String assocField = fields[3].trim();
+                    double assoc = assocField.equals("FA") ? size / blocksize : Double.parseDouble(assocField);
+                    model.rows.add(new double[] {log2(size), log2(blocksize), log2(assoc),
+                        Double.parseDouble(fields[4].trim()), Double.parseDouble(fields[5].trim()), Double.parseDouble(fields[6].trim())});
+                }
+                catch (NumberFormatException e) {
+                    throw new IOException("bad CACTI row: " + line);
+                }
+            }
+        }
+        if (model.rows.isEmpty()) {
+            throw new IOException("no CACTI rows in " + file);
+        }
+        return model;
+    }
+
+    // Input: A cache geometry
+    // Output: {access time ns, energy per access nJ, area mm*mm}
+    public double[] lookup(long size, int blocksize, int assoc) {
+        double[] key = {log2(size), log2(blocksize), log2(assoc)};
+        double[] values = new double[3];
+        for (int v = 0; v < 3; v++) {
+            values[v] = Math.exp(estimate(this.rows, key, 0, 3 + v));
+        }
+        return values;
+    }
+
+    // log(column) at key, interpolated along axis and every axis after it
+    static double estimate(List<double[]> points, double[] key, int axis, int column) {
+        if (axis == 3) {
+            return Math.log(points.get(0)[column]);
+        }
+        TreeMap<Double, List<double[]>> byCoord = new TreeMap<Double, List<double[]>>();
+        for (double[] point : points) {
+            byCoord.computeIfAbsent(point[axis], k -> new ArrayList<double[]>()).add(point);
+        }
+        double x = key[axis];
+        if (byCoord.containsKey(x) || byCoord.size() == 1) {
+            List<double[]> group = byCoord.containsKey(x) ? byCoord.get(x) : byCoord.firstEntry().getValue();
+            return estimate(group, key, axis + 1, column);
+        }
+
+        // Bracketing coordinates, or the two nearest past either end
+        Double low = byCoord.lowerKey(x);
+        Double high = byCoord.higherKey(x);
+        if (low == null) {
+            low = high;
+            high = byCoord.higherKey(low);
+        }
+        else if (high == null) {
+            high = low;
+            low = byCoord.lowerKey(high);
+        }
+        double y0 = estimate(byCoord.get(low), key, axis + 1, column);
+        double y1 = estimate(byCoord.get(high), key, axis + 1, column);
+        return y0 + (y1 - y0) * (x - low) / (high - low);
+    }
+
+    // Input: The L1 and the L2 (null if absent) after a run
+    // Output: Access time, area and energy totals of the run
+    public Estimate evaluate(Cache l1Cache, Cache l2Cache) {
+        Estimate estimate = new Estimate();
+        double[] l1 = lookup(l1Cache.cacheSize, l1Cache.blocksize, l1Cache.assoc);
+        long accesses = (long)l1Cache.numReads + l1Cache.numWrites;
+        double l1MissRate = (accesses > 0) ? (double)(l1Cache.numReadMisses + l1Cache.numWriteMisses) / accesses : 0;
+        estimate.l1Dynamic = l1[1] * events(l1Cache);
+        estimate.area = l1[2];
+
+        if (l2Cache != null) {
+            double[] l2 = lookup(l2Cache.cacheSize, l2Cache.blocksize, l2Cache.assoc);
+            double l2MissRate = (l2Cache.numReads > 0) ? (double)l2Cache.numReadMisses / l2Cache.numReads : 0;
+            estimate.accessTime = l1[0] + l1MissRate * (l2[0] + l2MissRate * this.missPenalty);
+            estimate.l2Dynamic = l2[1] * events(l2Cache);
+            estimate.area += l2[2];
+        }
+        else {
+            estimate.accessTime = l1[0] + l1MissRate * this.missPenalty;
+        }
+
+        estimate.runtime = accesses * estimate.accessTime;
+        estimate.leakage = estimate.area * this.leakageDensity * estimate.runtime * 1e-3; // mW * ns = 1e-3 nJ
+        estimate.total = estimate.l1Dynamic + estimate.l2Dynamic + estimate.leakage;
+        estimate.edp = (estimate.total * 1e-9) * (estimate.runtime * 1e-9);
+        return estimate;
+    }
+
+    // Array accesses: every request, plus a fill per miss and a read per writeback
+    static long events(Cache cache) {
+        return (long)cache.numReads + cache.numWrites + cache.numReadMisses + cache.numWriteMisses
+            + cache.numWritebacks + cache.numInvalWritebacks;
+    }
+
+    static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+}
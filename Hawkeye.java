@@ -0,0 +1,119 @@
+import java.util.Arrays;
+
+// Hawkeye replacement (Jain and Lin, "Back to the Future: Leveraging
+// Belady's Algorithm for Improved Cache Replacement", ISCA 2016) for one
+// cache level. OPTgen replays the accesses of a few sampled sets against an
+// occupancy vector to work out, online, whether the optimal policy would
+// have hit; each answer trains a table of 3-bit counters up or down. Lines
+// the table calls cache-friendly are kept by age, cache-averse lines are
+// inserted at the highest age and evicted first.
+// Traces carry no PCs, so the counters are indexed by a hash of the block's
+// 4 KB region instead: hot regions learn to stay, streamed ones to leave.
+// Memory is bounded: 8 * assoc history entries and occupancy slots per
+// sampled set (at most 64 sets) and 8192 counters.
+public class Hawkeye {
+    static final int MAX_SAMPLED_SETS = 64;
+    static final int COUNTER_BITS = 13; // 8192 counters
+    static final int COUNTER_MAX = 7;
+    static final int MAX_AGE = 7; // Cache-averse, evicted first
+    static final int REGION_BITS = 12;
+
+    int assoc;
+    int regionShift; // Block address -> region
+    int sampleSpacing; // Every {sampleSpacing}th set is sampled
+    int history; // OPTgen window, in accesses to the set
+
+    byte[] counters = new byte[1 << COUNTER_BITS];
+
+    // Per sampled set, indexed [sampled set][access time % history]
+    int[] time; // Accesses to each sampled set so far
+    byte[][] occupancy; // Lines the optimal policy holds over each time slot
+    long[][] historyBlock; // Block accessed at that time
+    int[][] historyTime; // The time itself, -1 = empty
+    boolean[][] historyReused;
+
+    public Hawkeye(int numSets, int assoc, int offsetBits) {
+        this.assoc = assoc;
+        this.regionShift = Math.max(0, REGION_BITS - offsetBits);
+        this.history = 8 * Math.max(assoc, 1);
+        int sampled = Math.min(MAX_SAMPLED_SETS, numSets);
+        this.sampleSpacing = (sampled > 0) ? numSets / sampled : 1;
+        this.time = new int[sampled];
+        this.occupancy = new byte[sampled][this.history];
+        this.historyBlock = new long[sampled][this.history];
+        this.historyTime = new int[sampled][this.history];
+        this.historyReused = new boolean[sampled][this.history];
+        for (int s = 0; s < sampled; s++) {
+            Arrays.fill(this.historyTime[s], -1);
+        }
+        Arrays.fill(this.counters, (byte)((COUNTER_MAX + 1) / 2));
+    }
+
+    // Input: The set an access maps to and its block address
+    // Output: Void, trains the predictor with OPTgen's verdict if the set is sampled
+    void access(int set, long block) {
+        if (set % this.sampleSpacing != 0 || set / this.sampleSpacing >= this.time.length) {
+            return;
+        }
+        int s = set / this.sampleSpacing;
+        int now = this.time[s]++;
+        int slot = now % this.history;
+
+        // The most recent earlier access to the block still in the window
+        int last = -1;
+        for (int i = 0; i < this.history; i++) {
+            if (this.historyBlock[s][i] == block && this.historyTime[s][i] > last && this.historyTime[s][i] > now - this.history) {
+                last = this.historyTime[s][i];
+            }
+        }
+        if (last >= 0) {
+            this.historyReused[s][last % this.history] = true;
+            // The optimal policy hits if the line fits over its whole interval
+            boolean fits = true;
+            for (int t = last; t < now && fits; t++) {
+                fits = this.occupancy[s][t % this.history] < this.assoc;
+            }
+            if (fits) {
+                for (int t = last; t < now; t++) {
+                    this.occupancy[s][t % this.history]++;
+                }
+            }
+            train(block, fits);
+        }
+
+        // The entry leaving the window was never reused: an optimal miss
+        if (this.historyTime[s][slot] >= 0 && !this.historyReused[s][slot]) {
+            train(this.historyBlock[s][slot], false);
+        }
+        this.historyBlock[s][slot] = block;
+        this.historyTime[s][slot] = now;
+        this.historyReused[s][slot] = false;
+        this.occupancy[s][slot] = 0;
+    }
+
+    void train(long block, boolean friendly) {
+        int c = signature(block);
+        if (friendly && this.counters[c] < COUNTER_MAX) {
+            this.counters[c]++;
+        }
+        else if (!friendly && this.counters[c] > 0) {
+            this.counters[c]--;
+        }
+    }
+
+    // Input: A block address
+    // Output: true if its counter says the optimal policy tends to keep it
+    boolean friendly(long block) {
+        return this.counters[signature(block)] > COUNTER_MAX / 2;
+    }
+
+    int signature(long block) {
+        return (int)(((block >>> this.regionShift) * 0x9E3779B97F4A7C15L) >>> (64 - COUNTER_BITS));
+    }
+
+    // Input: A block evicted while still predicted friendly
+    // Output: Void, the prediction was wrong, train it down
+    void detrain(long block) {
+        train(block, false);
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.Arrays;
+
+// Line storage in flat primitive arrays indexed by set * assoc + way, so the
+// ways of a set are contiguous. Empty lines hold block address -1 so a tag
+// search only has to check the flags of a way whose address matches.
+public class HeapLineStore extends LineStore {
+    long[] blocks;
+    int[] metas;
+    byte[] flags;
+
+    public HeapLineStore(int numSets, int assoc) {
+        super(numSets, assoc);
+        int lines = numSets * assoc;
+        this.blocks = new long[lines];
+        this.metas = new int[lines];
+        this.flags = new byte[lines];
+        Arrays.fill(this.blocks, -1L);
+    }
+
+    long block(int set, int way) {
+        return this.blocks[set * this.assoc + way];
+    }
+
+    int meta(int set, int way) {
+        return this.metas[set * this.assoc + way];
+    }
+
+    int flags(int set, int way) {
+        return this.flags[set * this.assoc + way];
+    }
+
+    void fill(int set, int way, long block, int meta, int flags) {
+        int line = set * this.assoc + way;
+        this.blocks[line] = block;
+        this.metas[line] = meta;
+        this.flags[line] = (byte)flags;
+    }
+
+    void setMeta(int set, int way, int meta) {
+        this.metas[set * this.assoc + way] = meta;
+    }
+
+    void setFlags(int set, int way, int flags) {
+        this.flags[set * this.assoc + way] = (byte)flags;
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.PrintStream;
+
+// Periodic per-level statistics. Every {interval} trace references the change
+// in each level's counters since the previous report is written as one CSV
+// row or one JSON object per line. The counters are the plain fields Cache
+// already increments; they are only read here, on the simulating thread, at
+// interval boundaries, so the hot path pays nothing extra.
+public class IntervalStats {
+    Cache l1Cache;
+    Cache l2Cache; // null when there is no L2
+    int inclusion;
+    int interval; // References per report
+    boolean json; // false = CSV
+    PrintStream out;
+
+    int untilReport; // References left in the current interval
+    int lastRef; // Trace position of the previous report
+    int[] last; // Counter values at the previous report
+    boolean headerDone;
+
+    public IntervalStats(Cache l1Cache, Cache l2Cache, int inclusion, int interval, boolean json, PrintStream out) {
+        this.l1Cache = l1Cache;
+        this.l2Cache = l2Cache;
+        this.inclusion = inclusion;
+        this.interval = interval;
+        this.json = json;
+        this.out = out;
+        this.untilReport = interval;
+        this.last = snapshot();
+    }
+
+    // Restart the deltas from the current counters, e.g. after a checkpoint
+    // restore or a warmup reset
+    public void rebase(int ref) {
+        this.lastRef = ref;
+        this.last = snapshot();
+        this.untilReport = interval;
+    }
+
+    // Called once per simulated reference
+    // Input: The trace position just completed (1-based)
+    public void tick(int ref) {
+        if (--untilReport == 0) {
+            report(ref);
+            untilReport = interval;
+        }
+    }
+
+    // Emit whatever is left of a partial interval at the end of the trace
+    public void finish(int ref) {
+        if (ref > lastRef) {
+            report(ref);
+        }
+        out.flush();
+    }
+
+    int[] snapshot() {
+        int[] values = new int[13];
+        copy(l1Cache, values, 0);
+        if (l2Cache != null) {
+            copy(l2Cache, values, 6);
+        }
+        values[12] = sim_cache.memTraffic(l1Cache, l2Cache, inclusion);
+        return values;
+    }
+
+    static void copy(Cache cache, int[] values, int base) {
+        values[base] = cache.numReads;
+        values[base + 1] = cache.numReadMisses;
+        values[base + 2] = cache.numWrites;
+        values[base + 3] = cache.numWriteMisses;
+        values[base + 4] = cache.numWritebacks;
+        values[base + 5] = cache.numInvalWritebacks;
+    }
+
+    void report(int ref) {
+        int[] now = snapshot();
+        int[] delta = new int[now.length];
+        for (int i = 0; i < now.length; i++) {
+            delta[i] = now[i] - last[i];
+        }
+        int levels = (l2Cache != null) ? 2 : 1;
+
+        StringBuilder line = new StringBuilder(128);
+        if (json) {
+            line.append("{\"ref\":").append(ref).append(",\"refs\":").append(ref - lastRef);
+            for (int l = 0; l < levels; l++) {
+                int b = l * 6;
+                line.append(",\"L").append(l + 1).append("\":{")
+                    .append("\"reads\":").append(delta[b])
+                    .append(",\"read_misses\":").append(delta[b + 1])
+                    .append(",\"writes\":").append(delta[b + 2])
+                    .append(",\"write_misses\":").append(delta[b + 3])
+                    .append(",\"writebacks\":").append(delta[b + 4] + delta[b + 5])
+                    .append('}');
+            }
+            line.append(",\"mem_traffic\":").append(delta[12]).append('}');
+        }
+        else {
+            if (!headerDone) {
+                StringBuilder header = new StringBuilder("ref,refs");
+                for (int l = 1; l <= levels; l++) {
+                    header.append(",l").append(l).append("_reads,l").append(l).append("_read_misses,l")
+                        .append(l).append("_writes,l").append(l).append("_write_misses,l")
+                        .append(l).append("_writebacks");
+                }
+                header.append(",mem_traffic");
+                out.println(header);
+                headerDone = true;
+            }
+            line.append(ref).append(',').append(ref - lastRef);
+            for (int l = 0; l < levels; l++) {
+                int b = l * 6;
+                line.append(',').append(delta[b]).append(',').append(delta[b + 1])
+                    .append(',').append(delta[b + 2]).append(',').append(delta[b + 3])
+                    .append(',').append(delta[b + 4] + delta[b + 5]);
+            }
+            line.append(',').append(delta[12]);
+        }
+        out.println(line);
+
+        last = now;
+        lastRef = ref;
+    }
+}
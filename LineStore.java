@@ -0,0 +1,43 @@
+// Backing storage for the lines of one cache. Each line (set, way) holds the
+// block address it caches (address >>> offsetBits), an int of replacement
+// metadata (clock cycle or next use, depending on the policy) and state flags.
+// A line with no PRESENT flag has never been filled.
+public abstract class LineStore {
+    static final int PRESENT = 1;
+    static final int VALID = 2;
+    static final int DIRTY = 4;
+    static final int DEAD = 8; // Filled predicted dead, cleared by its first hit
+
+    int numSets;
+    int assoc;
+
+    public LineStore(int numSets, int assoc) {
+        this.numSets = numSets;
+        this.assoc = assoc;
+    }
+
+    abstract long block(int set, int way);
+
+    abstract int meta(int set, int way);
+
+    abstract int flags(int set, int way);
+
+    // Overwrite every field of a line at once
+    abstract void fill(int set, int way, long block, int meta, int flags);
+
+    abstract void setMeta(int set, int way, int meta);
+
+    abstract void setFlags(int set, int way, int flags);
+
+    boolean present(int set, int way) {
+        return (flags(set, way) & PRESENT) != 0;
+    }
+
+    boolean valid(int set, int way) {
+        return (flags(set, way) & VALID) != 0;
+    }
+
+    boolean dirty(int set, int way) {
+        return (flags(set, way) & DIRTY) != 0;
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.HashMap;
+
+// Bounded future for the optimal policy: only the next {window} trace
+// references are known, and a block not referenced in that window is taken
+// as never reused. The window is read ahead from a TraceSource, so the trace
+// is streamed (merged traces included) and never held whole. A ring buffer
+// holds the window's references, and every block in it keeps its
+// occurrences as a chain through {nextPos}, so sliding the window by one
+// reference and finding a block's next use are both O(1) on average. The
+// ring starts small and doubles up to window + 1 slots, so memory is
+// O(min(window, trace)) instead of one queue entry per trace reference.
+// Positions are 1-based trace indices, the cycles mapFutureAccesses records.
+public class Lookahead {
+    static final int INITIAL_SLOTS = 1 << 12;
+
+    int window;
+    int offsetBits;
+    TraceSource source;
+    boolean ended; // The source has no references left
+    Command[] commands; // Ring buffer, position p at p % commands.length
+    long[] blocks; // Block address of each slot's reference
+    int[] nextPos; // Next position of the same block in the window, -1 if none
+    HashMap<Long, int[]> chains = new HashMap<Long, int[]>(); // Block -> {first, last} position in the window
+    int current; // Position of the reference being simulated
+    int end; // Last position in the window
+
+    public Lookahead(int window, int offsetBits, TraceSource source) {
+        this.window = window;
+        this.offsetBits = offsetBits;
+        this.source = source;
+        int slots = (int)Math.min((long)window + 1, INITIAL_SLOTS);
+        this.commands = new Command[slots];
+        this.blocks = new long[slots];
+        this.nextPos = new int[slots];
+    }
+
+    // Input: The references a restored checkpoint has already simulated
+    // Output: Void, they are read past and the window starts after them
+    public void skip(int count) {
+        while (this.end < count && this.source.next() != null) {
+            this.end++;
+        }
+        this.current = this.end;
+    }
+
+    // Output: The next reference to simulate, or null once the trace has
+    // ended; the window then covers the references after it
+    public Command next() {
+        while (!this.ended && this.end - this.current <= this.window) {
+            Command command = this.source.next();
+            if (command == null) {
+                this.ended = true;
+                break;
+            }
+            if (this.end + 1 - this.current > this.commands.length) {
+                grow();
+            }
+            this.end++;
+            long block = command.addr >>> this.offsetBits;
+            int slot = this.end % this.commands.length;
+            this.commands[slot] = command;
+            this.blocks[slot] = block;
+            this.nextPos[slot] = -1;
+            int[] chain = this.chains.get(block);
+            if (chain == null) {
+                this.chains.put(block, new int[] {this.end, this.end});
+            }
+            else {
+                this.nextPos[chain[1] % this.commands.length] = this.end;
+                chain[1] = this.end;
+            }
+        }
+        if (this.current == this.end) {
+            return null;
+        }
+        this.current++; // It leaves the window, being simulated now
+        int slot = this.current % this.commands.length;
+        int[] chain = this.chains.get(this.blocks[slot]);
+        chain[0] = this.nextPos[slot];
+        if (chain[0] < 0) {
+            this.chains.remove(this.blocks[slot]);
+        }
+        return this.commands[slot];
+    }
+
+    // Doubles the ring, up to window + 1 slots; positions keep their values
+    void grow() {
+        int slots = (int)Math.min((long)this.window + 1, 2L * this.commands.length);
+        Command[] commands = new Command[slots];
+        long[] blocks = new long[slots];
+        int[] nextPos = new int[slots];
+        for (int p = this.current + 1; p <= this.end; p++) {
+            commands[p % slots] = this.commands[p % this.commands.length];
+            blocks[p % slots] = this.blocks[p % this.commands.length];
+            nextPos[p % slots] = this.nextPos[p % this.commands.length];
+        }
+        this.commands = commands;
+        this.blocks = blocks;
+        this.nextPos = nextPos;
+    }
+
+    // Input: A block address and the cycle of the access asking
+    // Output: The block's first position in the window after that cycle, or
+    // Integer.MAX_VALUE if it isn't referenced again within the window
+    public int nextUse(long block, int cycle) {
+        int[] chain = this.chains.get(block);
+        if (chain == null) {
+            return Integer.MAX_VALUE;
+        }
+        int position = chain[0];
+        while (position >= 0 && position <= cycle) {
+            position = this.nextPos[position % this.commands.length];
+        }
+        return (position < 0) ? Integer.MAX_VALUE : position;
+    }
+}
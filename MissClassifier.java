@@ -0,0 +1,62 @@
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 3C miss classification for one cache level.
+// Compulsory: first reference to the block in the whole run.
+// Capacity: not compulsory, and a fully-associative LRU cache with the same
+// number of blocks would have missed too.
+// Conflict: everything else, i.e. misses caused by limited associativity.
+// The shadow cache is a LinkedHashMap in access order (hash table threaded
+// with a recency list), so each reference costs O(1).
+public class MissClassifier {
+    int capacity; // Blocks in the shadow cache, same as the real cache
+    HashSet<Long> touched; // Every block address ever referenced
+    LinkedHashMap<Long, Boolean> shadow; // Fully-associative LRU shadow
+
+    // Outcome of the most recent reference, consumed by classify()
+    boolean firstTouch;
+    boolean shadowHit;
+
+    int numCompulsory;
+    int numCapacity;
+    int numConflict;
+
+    public MissClassifier(int capacity) {
+        this.capacity = capacity;
+        this.touched = new HashSet<Long>();
+        this.shadow = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > MissClassifier.this.capacity;
+            }
+        };
+    }
+
+    // Input: The block address (address without offset bits) being referenced
+    // Output: Void, updates the first-touch set and the shadow LRU stack
+    public void touch(long blockAddr) {
+        Long key = blockAddr;
+        this.firstTouch = this.touched.add(key);
+        this.shadowHit = this.shadow.put(key, Boolean.TRUE) != null;
+    }
+
+    // Called when the real cache misses on the most recent reference
+    public void classify() {
+        if (this.firstTouch) {
+            this.numCompulsory++;
+        }
+        else if (!this.shadowHit) {
+            this.numCapacity++;
+        }
+        else {
+            this.numConflict++;
+        }
+    }
+
+    public void resetStats() {
+        this.numCompulsory = 0;
+        this.numCapacity = 0;
+        this.numConflict = 0;
+    }
+}
@@ -0,0 +1,151 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// The request stream an L1 sends to the next level, saved so L2 sweeps with a
+// fixed non-inclusive L1 only have to simulate the L2 side.
+// Layout: header (magic, version, L1 configuration), one varint-packed record
+// per request, an end marker, then the trace length and a Checkpoint of the
+// final L1 so replays can print the same L1 results and contents.
+// A record is zigzag(block address delta) << 2 | op, followed by
+// zigzag(cycle delta). Consecutive requests are usually close in both, so a
+// record is typically 2-4 bytes.
+public class MissStream {
+    static final int MAGIC = 0x534D5353; // "SMSS"
+    static final int VERSION = 1;
+
+    // Record ops
+    static final int READ = 0;
+    static final int WRITE = 1;
+    static final int END = 2;
+    static final int RESET = 3; // Statistics reset at the end of warmup
+
+    DataOutputStream out;
+    int offsetBits;
+    long lastBlock;
+    int lastCycle;
+    IOException error; // First write failure, reported by finish()
+
+    // Input: A file name and the L1 whose requests will be recorded
+    // Output: A stream ready to record, with its header written
+    public static MissStream create(String file, Cache l1Cache) throws IOException {
+        MissStream stream = new MissStream();
+        stream.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        stream.offsetBits = l1Cache.offsetBits;
+        stream.out.writeInt(MAGIC);
+        stream.out.writeInt(VERSION);
+        stream.out.writeInt(l1Cache.blocksize);
+        stream.out.writeInt(l1Cache.addrBits);
+        return stream;
+    }
+
+    // Called from Cache.sendDown
+    void record(char cmd, long addr, int cycle) {
+        long block = addr >>> this.offsetBits;
+        writeOp((cmd == 'w') ? WRITE : READ, block - this.lastBlock);
+        writeVarint(zigzag(cycle - this.lastCycle));
+        this.lastBlock = block;
+        this.lastCycle = cycle;
+    }
+
+    // Marks the point where the recording run reset its statistics
+    void markReset() {
+        writeOp(RESET, 0);
+    }
+
+    // Input: The number of trace references simulated and the final L1
+    // Output: Void, writes the end marker and trailer and closes the file
+    public void finish(int references, Cache l1Cache) throws IOException {
+        writeOp(END, 0);
+        if (this.error != null) {
+            throw this.error;
+        }
+        this.out.writeInt(references);
+        Checkpoint.save(this.out, references, l1Cache);
+        this.out.close();
+    }
+
+    void writeOp(int op, long delta) {
+        writeVarint((zigzag(delta) << 2) | op);
+    }
+
+    void writeVarint(long value) {
+        try {
+            while ((value & ~0x7FL) != 0) {
+                this.out.writeByte((int)((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            this.out.writeByte((int)value);
+        }
+        catch (IOException e) {
+            if (this.error == null) {
+                this.error = e;
+            }
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long)(b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    // Input: A recorded stream, an L1 with the configuration it was recorded
+    // with and the L2 to drive
+    // Output: The trace length of the recording run; every recorded request
+    // has been applied to the L2 and the L1 holds its final recorded state
+    public static int replay(String file, Cache l1Cache, Cache l2Cache) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a miss stream: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported miss stream version " + version);
+            }
+            if (in.readInt() != l1Cache.blocksize || in.readInt() != l1Cache.addrBits) {
+                throw new IOException("miss stream was recorded with a different block size or address width");
+            }
+
+            long block = 0;
+            int cycle = 0;
+            while (true) {
+                long word = readVarint(in);
+                int op = (int)(word & 3);
+                if (op == END) {
+                    break;
+                }
+                if (op == RESET) {
+                    l2Cache.resetStats();
+                    continue;
+                }
+                block += unzigzag(word >>> 2);
+                cycle += (int)unzigzag(readVarint(in));
+                Command command = new Command((op == WRITE) ? 'w' : 'r', block << l1Cache.offsetBits);
+                l2Cache.access(command, cycle);
+            }
+
+            int references = in.readInt();
+            Checkpoint.restore(in, l1Cache);
+            return references;
+        }
+    }
+}
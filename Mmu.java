@@ -0,0 +1,185 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Address translation in front of L1: a data TLB, a second-level TLB behind
+// it, and on a miss in both a radix page walk (x86-64 style, 512 eight-byte
+// entries per table) whose entry reads go through the data caches like any
+// other load. Every page has one size: 4 KB pages walk 4 levels, 2 MB pages
+// 3 and 1 GB pages 2.
+// Trace addresses are taken as virtual and mapped one to one onto physical
+// pages, so the data references hit the caches exactly as without
+// translation and every difference comes from the walks. Page tables are
+// allocated on first touch from {tableBase} upward.
+public class Mmu {
+    static final int ENTRY_BITS = 9; // Entries per table = 512
+    static final int ENTRY_SIZE = 8;
+
+    // Configuration
+    int dtlbEntries = 64;
+    int dtlbWays = 4;
+    int stlbEntries = 1536; // 0 = no second level
+    int stlbWays = 12;
+    int pageBits = 12;
+    long tableBase = 0xC0000000L;
+    long addrMask = -1L;
+
+    Tlb dtlb;
+    Tlb stlb;
+    int levels; // Table reads per walk
+    HashMap<Long, Long> tables = new HashMap<Long, Long>(); // (level, address prefix) -> table address
+    long nextTable;
+
+    // Performance tracking
+    long walks;
+    long walkReads; // Page table entries read through L1
+    long walkL1Misses;
+    long walkL2Misses;
+
+    // A set-associative LRU TLB of virtual page numbers
+    static class Tlb {
+        int sets;
+        int ways;
+        long[] pages; // -1 = empty
+        long[] used; // Per entry, the lookup that last touched it
+        long clock;
+        long accesses;
+        long misses;
+
+        Tlb(int entries, int ways) {
+            this.ways = ways;
+            this.sets = entries / ways;
+            this.pages = new long[this.sets * ways];
+            this.used = new long[this.sets * ways];
+            Arrays.fill(this.pages, -1);
+        }
+
+        // Input: A virtual page number
+        // Output: true on a hit; a miss installs the page over the LRU entry
+        boolean access(long page) {
+            this.accesses++;
+            this.clock++;
+            int base = (int)Long.remainderUnsigned(page, this.sets) * this.ways;
+            int victim = base;
+            for (int i = base; i < base + this.ways; i++) {
+                if (this.pages[i] == page) {
+                    this.used[i] = this.clock;
+                    return true;
+                }
+                if (this.used[i] < this.used[victim]) {
+                    victim = i;
+                }
+            }
+            this.misses++;
+            this.pages[victim] = page;
+            this.used[victim] = this.clock;
+            return false;
+        }
+
+        double missRate() {
+            return (this.accesses > 0) ? (double)this.misses / this.accesses : 0;
+        }
+    }
+
+    // Input: Comma-separated key=value settings, e.g. "page=2m,stlb=0", or
+    // null for the defaults, and the address width
+    // Output: The translation stage, with empty TLBs
+    public static Mmu parse(String spec, int addrBits) {
+        Mmu mmu = new Mmu();
+        if (spec != null) {
+            for (String item : spec.split(",")) {
+                String[] pair = item.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Invalid TLB setting: " + item);
+                }
+                try {
+                    mmu.set(pair[0], pair[1]);
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid TLB setting: " + item);
+                }
+            }
+        }
+        if (mmu.dtlbEntries < 1 || mmu.dtlbWays < 1 || mmu.dtlbEntries % mmu.dtlbWays != 0
+                || mmu.stlbEntries < 0 || (mmu.stlbEntries > 0 && (mmu.stlbWays < 1 || mmu.stlbEntries % mmu.stlbWays != 0))) {
+            throw new IllegalArgumentException("TLB entries must be a positive multiple of the ways");
+        }
+        mmu.addrMask = (addrBits == 64) ? -1L : (1L << addrBits) - 1;
+        mmu.dtlb = new Tlb(mmu.dtlbEntries, mmu.dtlbWays);
+        if (mmu.stlbEntries > 0) {
+            mmu.stlb = new Tlb(mmu.stlbEntries, mmu.stlbWays);
+        }
+        mmu.levels = 4 - (mmu.pageBits - 12) / ENTRY_BITS;
+        mmu.nextTable = mmu.tableBase & mmu.addrMask;
+        return mmu;
+    }
+
+    void set(String key, String value) {
+        switch (key) {
+            case "dtlb": this.dtlbEntries = Integer.parseInt(value); break;
+            case "dtlbways": this.dtlbWays = Integer.parseInt(value); break;
+            case "stlb": this.stlbEntries = Integer.parseInt(value); break;
+            case "stlbways": this.stlbWays = Integer.parseInt(value); break;
+            case "pt": this.tableBase = Long.parseUnsignedLong(value, 16); break;
+            case "page":
+                switch (value) {
+                    case "4k": this.pageBits = 12; break;
+                    case "2m": this.pageBits = 21; break;
+                    case "1g": this.pageBits = 30; break;
+                    default: throw new IllegalArgumentException("Invalid page size: " + value);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid TLB setting: " + key);
+        }
+    }
+
+    // Clears performance counters, TLB contents and page tables stay
+    public void resetStats() {
+        this.dtlb.accesses = 0;
+        this.dtlb.misses = 0;
+        if (this.stlb != null) {
+            this.stlb.accesses = 0;
+            this.stlb.misses = 0;
+        }
+        this.walks = 0;
+        this.walkReads = 0;
+        this.walkL1Misses = 0;
+        this.walkL2Misses = 0;
+    }
+
+    // Input: A reference (its address is virtual), the L1 and the L2 (null if
+    // absent), and the clock cycle the reference would have used
+    // Output: The clock cycle for the reference itself, after any page walk
+    // reads were sent through L1 one cycle each, tagged with the reference's stream
+    public int translate(Command command, Cache l1Cache, Cache l2Cache, int clockCycle) {
+        long addr = command.addr;
+        long page = addr >>> this.pageBits;
+        if (this.dtlb.access(page) || (this.stlb != null && this.stlb.access(page))) {
+            return clockCycle;
+        }
+        this.walks++;
+        for (int level = this.levels; level >= 1; level--) {
+            // Table of this level covering the address, then the entry in it
+            int shift = this.pageBits + (level - 1) * ENTRY_BITS;
+            long prefix = addr >>> (shift + ENTRY_BITS);
+            Long key = ((long)level << 56) ^ prefix;
+            Long table = this.tables.get(key);
+            if (table == null) {
+                table = this.nextTable;
+                this.nextTable = (this.nextTable + (ENTRY_SIZE << ENTRY_BITS)) & this.addrMask;
+                this.tables.put(key, table);
+            }
+            long entry = table + ((addr >>> shift) & ((1 << ENTRY_BITS) - 1)) * ENTRY_SIZE;
+
+            int l1Misses = l1Cache.numReadMisses;
+            int l2Misses = (l2Cache != null) ? l2Cache.numReadMisses : 0;
+            l1Cache.access(new Command('r', entry & this.addrMask, command.stream), clockCycle++);
+            this.walkReads++;
+            this.walkL1Misses += l1Cache.numReadMisses - l1Misses;
+            if (l2Cache != null) {
+                this.walkL2Misses += l2Cache.numReadMisses - l2Misses;
+            }
+        }
+        return clockCycle;
+    }
+}
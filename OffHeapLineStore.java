@@ -0,0 +1,82 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Line storage outside the Java heap, for simulated caches with tens of
+// millions of lines. Each line is packed into 16 bytes (block address, meta,
+// flags) in direct ByteBuffers of CHUNK_LINES lines. Chunks are only
+// allocated (and zeroed) the first time one of their lines is written, so
+// construction is immediate and untouched regions cost nothing; an
+// unallocated line reads as empty. Direct memory is limited by
+// -XX:MaxDirectMemorySize, not by -Xmx.
+public class OffHeapLineStore extends LineStore {
+    static final int LINE_BYTES = 16;
+    static final int CHUNK_BITS = 16; // 64K lines, 1 MB per chunk
+    static final int CHUNK_LINES = 1 << CHUNK_BITS;
+
+    long lines;
+    ByteBuffer[] chunks;
+
+    public OffHeapLineStore(int numSets, int assoc) {
+        super(numSets, assoc);
+        this.lines = (long)numSets * assoc;
+        this.chunks = new ByteBuffer[(int)((this.lines + CHUNK_LINES - 1) >>> CHUNK_BITS)];
+    }
+
+    // Input: A line number
+    // Output: The chunk holding it, or null if it was never written
+    ByteBuffer chunk(int line) {
+        return this.chunks[line >>> CHUNK_BITS];
+    }
+
+    ByteBuffer chunkForWrite(int line) {
+        int c = line >>> CHUNK_BITS;
+        ByteBuffer chunk = this.chunks[c];
+        if (chunk == null) {
+            int chunkLines = (int)Math.min(CHUNK_LINES, this.lines - ((long)c << CHUNK_BITS));
+            chunk = ByteBuffer.allocateDirect(chunkLines * LINE_BYTES).order(ByteOrder.nativeOrder());
+            this.chunks[c] = chunk;
+        }
+        return chunk;
+    }
+
+    static int offset(int line) {
+        return (line & (CHUNK_LINES - 1)) * LINE_BYTES;
+    }
+
+    long block(int set, int way) {
+        int line = set * this.assoc + way;
+        ByteBuffer chunk = chunk(line);
+        return (chunk == null) ? 0 : chunk.getLong(offset(line));
+    }
+
+    int meta(int set, int way) {
+        int line = set * this.assoc + way;
+        ByteBuffer chunk = chunk(line);
+        return (chunk == null) ? 0 : chunk.getInt(offset(line) + 8);
+    }
+
+    int flags(int set, int way) {
+        int line = set * this.assoc + way;
+        ByteBuffer chunk = chunk(line);
+        return (chunk == null) ? 0 : chunk.getInt(offset(line) + 12);
+    }
+
+    void fill(int set, int way, long block, int meta, int flags) {
+        int line = set * this.assoc + way;
+        ByteBuffer chunk = chunkForWrite(line);
+        int offset = offset(line);
+        chunk.putLong(offset, block);
+        chunk.putInt(offset + 8, meta);
+        chunk.putInt(offset + 12, flags);
+    }
+
+    void setMeta(int set, int way, int meta) {
+        int line = set * this.assoc + way;
+        chunkForWrite(line).putInt(offset(line) + 8, meta);
+    }
+
+    void setFlags(int set, int way, int flags) {
+        int line = set * this.assoc + way;
+        chunkForWrite(line).putInt(offset(line) + 12, flags);
+    }
+}
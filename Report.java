@@ -0,0 +1,274 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Final output of a sim_cache run: the configuration, the cache contents and
+// the raw results. TEXT is the original layout, printed as the run goes.
+// JSON (one document) and CSV (one header and one row, then a contents table
+// when it is dumped in full) are held until finish(), so nothing else printed
+// to the same stream splits them.
+// Contents can be dumped in full, summarized as valid/dirty block counts per
+// level, or skipped. A full dump lists the lines by storage row, so for a
+// skewed-associative cache "Set i" holds the line each way keeps at set i.
+public class Report {
+    static final int TEXT = 0;
+    static final int JSON = 1;
+    static final int CSV = 2;
+
+    static final int CONTENTS_FULL = 0;
+    static final int CONTENTS_SUMMARY = 1;
+    static final int CONTENTS_NONE = 2;
+
+    PrintStream out;
+    int format;
+    int contents;
+
+    // Held for JSON and CSV, {key, value, quote} in output order
+    List<String[]> config = new ArrayList<String[]>();
+    List<String[]> results = new ArrayList<String[]>();
+    List<String> levels = new ArrayList<String>();
+    List<Cache> caches = new ArrayList<Cache>();
+
+    public Report(PrintStream out, int format, int contents) {
+        this.out = out;
+        this.format = format;
+        this.contents = contents;
+    }
+
+    // Input: A -format value
+    // Output: The format constant, -1 if unknown
+    static int parseFormat(String name) {
+        switch (name) {
+            case "text": return TEXT;
+            case "json": return JSON;
+            case "csv": return CSV;
+            default: return -1;
+        }
+    }
+
+    // Input: A -contents value
+    // Output: The contents constant, -1 if unknown
+    static int parseContents(String name) {
+        switch (name) {
+            case "full": return CONTENTS_FULL;
+            case "summary": return CONTENTS_SUMMARY;
+            case "none": return CONTENTS_NONE;
+            default: return -1;
+        }
+    }
+
+    // Section title, text format only
+    public void heading(String title) {
+        if (this.format == TEXT) {
+            this.out.println(title);
+        }
+    }
+
+    // One configuration line; text is the text-format line
+    public void config(String key, String text, String value, boolean quote) {
+        if (this.format == TEXT) {
+            this.out.println(text);
+        }
+        else {
+            this.config.add(new String[] {key, value, quote ? "q" : ""});
+        }
+    }
+
+    // One numeric result; label is the text-format prefix of the value
+    public void result(String key, String label, String value) {
+        result(key, label, value, false);
+    }
+
+    // One result, quoted in JSON and CSV if it isn't a number
+    public void result(String key, String label, String value, boolean quote) {
+        if (this.format == TEXT) {
+            this.out.println(label + value);
+        }
+        else {
+            this.results.add(new String[] {key, value, quote ? "q" : ""});
+        }
+    }
+
+    // Input: The level's name ("L1", "L2") and the cache, in its final state
+    public void contents(String level, Cache cache) {
+        if (this.contents == CONTENTS_NONE) {
+            return;
+        }
+        if (this.format != TEXT) {
+            this.levels.add(level);
+            this.caches.add(cache);
+            return;
+        }
+        if (this.contents == CONTENTS_SUMMARY) {
+            int[] counts = count(cache);
+            this.out.println("===== " + level + " contents summary =====");
+            this.out.println("valid blocks:		" + counts[0] + " of " + ((long)cache.numSets * cache.assoc));
+            this.out.println("dirty blocks:		" + counts[1]);
+            return;
+        }
+        this.out.println("===== " + level + " contents =====");
+        StringBuilder line = new StringBuilder(16 + cache.assoc * 12);
+        for (int i = 0; i < cache.numSets; i++) {
+            line.setLength(0);
+            line.append("Set	").append(i).append(":	");
+            for (int j = 0; j < cache.assoc; j++) {
+                if (cache.lines.present(i, j)) {
+                    line.append(tag(cache, i, j));
+                    line.append(cache.lines.dirty(i, j) ? " D	" : "	"); // D means dirty
+                }
+            }
+            this.out.println(line);
+        }
+    }
+
+    // Emit the held JSON or CSV document and flush
+    public void finish() {
+        if (this.format == JSON) {
+            finishJson();
+        }
+        else if (this.format == CSV) {
+            finishCsv();
+        }
+        this.out.flush();
+    }
+
+    void finishJson() {
+        StringBuilder doc = new StringBuilder(1 << 12);
+        doc.append("{\"config\":");
+        appendObject(doc, this.config);
+        doc.append(",\"results\":");
+        appendObject(doc, this.results);
+        if (!this.caches.isEmpty()) {
+            doc.append(",\"contents\":{");
+            for (int l = 0; l < this.caches.size(); l++) {
+                Cache cache = this.caches.get(l);
+                doc.append((l > 0) ? ",\"" : "\"").append(this.levels.get(l)).append("\":");
+                if (this.contents == CONTENTS_SUMMARY) {
+                    int[] counts = count(cache);
+                    doc.append("{\"blocks\":").append((long)cache.numSets * cache.assoc)
+                        .append(",\"valid\":").append(counts[0]).append(",\"dirty\":").append(counts[1]).append('}');
+                    continue;
+                }
+                // One array per set, holding {tag, dirty} for each present way
+                doc.append('[');
+                for (int i = 0; i < cache.numSets; i++) {
+                    doc.append((i > 0) ? ",[" : "[");
+                    boolean first = true;
+                    for (int j = 0; j < cache.assoc; j++) {
+                        if (cache.lines.present(i, j)) {
+                            doc.append(first ? "{\"tag\":\"" : ",{\"tag\":\"").append(tag(cache, i, j))
+                                .append("\",\"dirty\":").append(cache.lines.dirty(i, j)).append('}');
+                            first = false;
+                        }
+                    }
+                    doc.append(']');
+                    if (doc.length() > (1 << 16)) { // Keep the buffer bounded for big caches
+                        this.out.append(doc);
+                        doc.setLength(0);
+                    }
+                }
+                doc.append(']');
+            }
+            doc.append('}');
+        }
+        doc.append('}');
+        this.out.append(doc);
+        this.out.println();
+    }
+
+    void finishCsv() {
+        StringBuilder header = new StringBuilder(512);
+        StringBuilder row = new StringBuilder(512);
+        List<String[]> columns = new ArrayList<String[]>(this.config);
+        columns.addAll(this.results);
+        if (this.contents == CONTENTS_SUMMARY) {
+            for (int l = 0; l < this.caches.size(); l++) {
+                int[] counts = count(this.caches.get(l));
+                String prefix = this.levels.get(l).toLowerCase();
+                columns.add(new String[] {prefix + "_valid_blocks", Integer.toString(counts[0]), ""});
+                columns.add(new String[] {prefix + "_dirty_blocks", Integer.toString(counts[1]), ""});
+            }
+        }
+        for (String[] column : columns) {
+            if (header.length() > 0) {
+                header.append(',');
+                row.append(',');
+            }
+            header.append(column[0]);
+            row.append(column[2].isEmpty() ? column[1] : csvQuote(column[1]));
+        }
+        this.out.println(header);
+        this.out.println(row);
+
+        if (this.contents == CONTENTS_FULL && !this.caches.isEmpty()) {
+            this.out.println();
+            this.out.println("level,set,way,tag,dirty");
+            StringBuilder line = new StringBuilder(64);
+            for (int l = 0; l < this.caches.size(); l++) {
+                Cache cache = this.caches.get(l);
+                for (int i = 0; i < cache.numSets; i++) {
+                    for (int j = 0; j < cache.assoc; j++) {
+                        if (cache.lines.present(i, j)) {
+                            line.setLength(0);
+                            line.append(this.levels.get(l)).append(',').append(i).append(',').append(j).append(',')
+                                .append(tag(cache, i, j)).append(',').append(cache.lines.dirty(i, j) ? 1 : 0);
+                            this.out.println(line);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static void appendObject(StringBuilder doc, List<String[]> fields) {
+        doc.append('{');
+        for (int f = 0; f < fields.size(); f++) {
+            String[] field = fields.get(f);
+            doc.append((f > 0) ? ",\"" : "\"").append(field[0]).append("\":");
+            if (field[2].isEmpty()) {
+                doc.append(field[1]);
+            }
+            else {
+                doc.append('"');
+                for (int c = 0; c < field[1].length(); c++) {
+                    char ch = field[1].charAt(c);
+                    if (ch == '"' || ch == '\\') {
+                        doc.append('\\');
+                    }
+                    doc.append(ch);
+                }
+                doc.append('"');
+            }
+        }
+        doc.append('}');
+    }
+
+    static String csvQuote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // Tag of a present way, in hex as the text contents dump shows it
+    static String tag(Cache cache, int set, int way) {
+        return Long.toHexString(cache.calcTag(cache.lines.block(set, way) << cache.offsetBits));
+    }
+
+    // Output: {valid blocks, dirty blocks}; lines invalidated by an inclusive
+    // L2 are still dumped in full but not counted
+    static int[] count(Cache cache) {
+        int[] counts = new int[2];
+        for (int i = 0; i < cache.numSets; i++) {
+            for (int j = 0; j < cache.assoc; j++) {
+                if (cache.lines.valid(i, j)) {
+                    counts[0]++;
+                    if (cache.lines.dirty(i, j)) {
+                        counts[1]++;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,290 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// On-disk store of finished sim_cache outputs, so repeating a configuration
+// prints the stored result instead of simulating again.
+// A result is keyed by the SHA-256 of the 7 configuration parameters, the
+// remaining output-affecting options (with the content of any input file
+// they name, e.g. the -energy table), the trace name as given (the output
+// prints it), the trace content digest and a digest of the simulator's own
+// class files, so rebuilding the simulator invalidates everything it
+// produced before.
+// Layout under the store directory:
+//   results/<key>   the exact text a run printed
+//   traces/<hash>   "<size> <mtime> <digest>" for a trace path, so a trace is
+//                   only hashed again after it changes
+//   tmp/            files being written; they are moved into place atomically,
+//                   so concurrent sweep workers never see a partial result
+// The results directory is bounded by size. A hit refreshes the file's mtime,
+// and eviction removes the least recently modified results first.
+public class ResultStore {
+    static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    static String simulatorDigest; // Computed once per JVM
+
+    Path results;
+    Path traces;
+    Path tmp;
+    long maxBytes;
+    IOException storeError; // Why the last run's result wasn't stored, null if it was or needn't be
+
+    public ResultStore(String dir, long maxBytes) throws IOException {
+        Path root = Paths.get(dir);
+        this.results = Files.createDirectories(root.resolve("results"));
+        this.traces = Files.createDirectories(root.resolve("traces"));
+        this.tmp = Files.createDirectories(root.resolve("tmp"));
+        this.maxBytes = maxBytes;
+    }
+
+    // Input: The full sim_cache arguments, their base directory (may be null),
+    // the trace file, where to print and the parsed traces to reuse (may be null)
+    // Output: sim_cache.run's status; the output is either the stored one or
+    // that of a fresh run, which is then stored if it succeeded. A failure to
+    // store it doesn't change the status; it's left in storeError for the caller.
+    public int run(String[] args, String dir, String file, PrintStream out, TraceCache traces) {
+        this.storeError = null;
+        String[] simArgs = stripOptions(args);
+        String key;
+        try {
+            key = key(simArgs, dir, traceDigest(Paths.get(file)));
+        }
+        catch (IOException e) {
+            // Unreadable trace, let the simulator report it
+            return sim_cache.run(simArgs, dir, out, traces);
+        }
+
+        byte[] stored = lookup(key);
+        if (stored != null) {
+            out.write(stored, 0, stored.length);
+            out.flush();
+            return 0;
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 12);
+        PrintStream capture = new PrintStream(buffer, false);
+        int status = sim_cache.run(simArgs, dir, capture, traces);
+        capture.flush();
+        byte[] result = buffer.toByteArray();
+        out.write(result, 0, result.length);
+        out.flush();
+        if (status == 0) {
+            try {
+                store(key, result);
+            }
+            catch (IOException e) {
+                this.storeError = e;
+            }
+        }
+        return status;
+    }
+
+    // The arguments without the store's own options, which don't change the output
+    static String[] stripOptions(String[] args) {
+        List<String> kept = new ArrayList<String>();
+        for (int a = 0; a < args.length; a++) {
+            if (a >= 8 && (args[a].equals("-result-cache") || args[a].equals("-result-cache-max")) && a + 1 < args.length) {
+                a++;
+                continue;
+            }
+            kept.add(args[a]);
+        }
+        return kept.toArray(new String[0]);
+    }
+
+    // Input: Arguments without the store options, their base directory (may
+    // be null) and the trace digest, which the trace name is keyed with
+    // Output: The hex key of the result
+    static String key(String[] args, String dir, String traceDigest) throws IOException {
+        StringBuilder text = new StringBuilder(256);
+        text.append("sim ").append(simulatorDigest()).append('\n');
+        for (int a = 0; a < 7; a++) { // Numeric, so "016" and "16" share a key
+            text.append(Long.parseLong(args[a])).append(' ');
+        }
+        text.append('\n');
+        for (int a = 8; a < args.length; a++) {
+            text.append(args[a]).append(' ');
+            Path input = (dir != null) ? Paths.get(dir).resolve(args[a]) : Paths.get(args[a]);
+            if (args[a].length() > 0 && !args[a].startsWith("-") && Files.isRegularFile(input)) {
+                text.append(hex(digest(input))).append(' ');
+            }
+        }
+        text.append("\ntrace ").append(args[7]).append(' ').append(traceDigest);
+        return hex(sha256().digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Input: A trace file
+    // Output: The hex SHA-256 of its content, reused while its size and mtime
+    // match the last time it was hashed
+    String traceDigest(Path trace) throws IOException {
+        Path path = trace.toAbsolutePath().normalize();
+        long size = Files.size(path);
+        long mtime = Files.getLastModifiedTime(path).toMillis();
+        Path entry = this.traces.resolve(hex(sha256().digest(path.toString().getBytes(StandardCharsets.UTF_8))));
+
+        try {
+            String[] fields = new String(Files.readAllBytes(entry), StandardCharsets.UTF_8).trim().split(" ");
+            if (fields.length == 3 && Long.parseLong(fields[0]) == size && Long.parseLong(fields[1]) == mtime) {
+                return fields[2];
+            }
+        }
+        catch (NoSuchFileException e) {
+            // Never hashed
+        }
+        catch (NumberFormatException e) {
+            // Damaged entry, hash again
+        }
+
+        String digest = hex(digest(path));
+        writeAtomically(entry, (size + " " + mtime + " " + digest + "\n").getBytes(StandardCharsets.UTF_8));
+        return digest;
+    }
+
+    // Input: A result key
+    // Output: The stored output, or null if there is none
+    byte[] lookup(String key) {
+        Path result = this.results.resolve(key);
+        try {
+            byte[] stored = Files.readAllBytes(result);
+            Files.setLastModifiedTime(result, FileTime.fromMillis(System.currentTimeMillis()));
+            return stored;
+        }
+        catch (IOException e) {
+            // Missing, or evicted by another worker between the two calls
+            return null;
+        }
+    }
+
+    void store(String key, byte[] result) throws IOException {
+        writeAtomically(this.results.resolve(key), result);
+        evict();
+    }
+
+    // Remove the least recently used results until the directory fits in maxBytes
+    void evict() throws IOException {
+        List<Path> files = new ArrayList<Path>();
+        List<long[]> info = new ArrayList<long[]>(); // {mtime, size}
+        long total = 0;
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(this.results)) {
+            for (Path file : dir) {
+                try {
+                    long size = Files.size(file);
+                    info.add(new long[] {Files.getLastModifiedTime(file).toMillis(), size});
+                    files.add(file);
+                    total += size;
+                }
+                catch (NoSuchFileException e) {
+                    // Evicted by another worker
+                }
+            }
+        }
+        if (total <= this.maxBytes) {
+            return;
+        }
+
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> info.get(i)[0]));
+        for (int i = 0; i < order.length && total > this.maxBytes; i++) {
+            Files.deleteIfExists(files.get(order[i]));
+            total -= info.get(order[i])[1];
+        }
+    }
+
+    // Write to a temporary file, then rename it over the target
+    void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path part = Files.createTempFile(this.tmp, "part", null);
+        try {
+            Files.write(part, bytes);
+            try {
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    // Digest of the class files the simulator was loaded from
+    static synchronized String simulatorDigest() throws IOException {
+        if (simulatorDigest == null) {
+            Path location;
+            try {
+                location = Paths.get(sim_cache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            }
+            catch (Exception e) {
+                throw new IOException("can't locate the simulator classes");
+            }
+            MessageDigest sha = sha256();
+            if (Files.isDirectory(location)) {
+                List<Path> classes = new ArrayList<Path>();
+                try (DirectoryStream<Path> dir = Files.newDirectoryStream(location, "*.class")) {
+                    for (Path file : dir) {
+                        classes.add(file);
+                    }
+                }
+                classes.sort(null);
+                for (Path file : classes) {
+                    sha.update(file.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+                    sha.update(digest(file));
+                }
+            }
+            else {
+                sha.update(digest(location));
+            }
+            simulatorDigest = hex(sha.digest());
+        }
+        return simulatorDigest;
+    }
+
+    // Streams the file through SHA-256 in fixed-size chunks
+    static byte[] digest(Path file) throws IOException {
+        MessageDigest sha = sha256();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                sha.update(buffer, 0, n);
+            }
+        }
+        return sha.digest();
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JRE provides SHA-256
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder text = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            text.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,160 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Publishes simulation progress and per-level counters as JMX MBeans so a
+// long run can be watched from JConsole/VisualVM. The simulating thread only
+// stores the current trace position into a plain field; a daemon sampler
+// thread reads that and the Cache counters racily every {periodMs} and
+// updates the volatile values the MBeans report. No locks or atomics are
+// added to the simulation path.
+// Every monitor gets its own job number in its ObjectNames, so concurrent
+// jobs of one sim_server each publish their own beans.
+public class SimulationMonitor implements SimulationMonitorMBean {
+    static final String DOMAIN = "sim_cache";
+    static final AtomicInteger JOBS = new AtomicInteger();
+
+    int job;
+    String traceFile;
+    int totalReferences; // -1 = not known in advance (merged traces)
+    long periodMs;
+    CacheStats[] levels;
+
+    int position; // Written by the simulating thread only
+
+    volatile int sampledPosition;
+    volatile double accessesPerSecond;
+    volatile double elapsedSeconds;
+    long startNanos;
+    long lastNanos;
+    int lastPosition;
+
+    ScheduledExecutorService sampler;
+    MBeanServer server;
+    ObjectName[] names;
+
+    public SimulationMonitor(String traceFile, int totalReferences, long periodMs, Cache... caches) {
+        this.job = JOBS.incrementAndGet();
+        this.traceFile = traceFile;
+        this.totalReferences = totalReferences;
+        this.periodMs = periodMs;
+        this.levels = new CacheStats[caches.length];
+        for (int i = 0; i < caches.length; i++) {
+            this.levels[i] = new CacheStats(caches[i]);
+        }
+    }
+
+    // Register the MBeans and start sampling. On failure, the beans already
+    // registered stay until stop().
+    public void start(int position) throws JMException {
+        this.position = position;
+        this.lastPosition = position;
+        this.startNanos = System.nanoTime();
+        this.lastNanos = this.startNanos;
+
+        this.server = ManagementFactory.getPlatformMBeanServer();
+        this.names = new ObjectName[this.levels.length + 1]; // Set once registered, so stop() only removes our own
+        ObjectName name = new ObjectName(DOMAIN + ":type=Simulation,job=" + this.job + ",trace=" + ObjectName.quote(this.traceFile));
+        this.server.registerMBean(this, name);
+        this.names[0] = name;
+        for (int i = 0; i < this.levels.length; i++) {
+            name = new ObjectName(DOMAIN + ":type=Cache,job=" + this.job + ",level=" + this.levels[i].getLevel());
+            this.server.registerMBean(this.levels[i], name);
+            this.names[i + 1] = name;
+        }
+
+        this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sim_cache-jmx-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sampler.scheduleAtFixedRate(this::sample, this.periodMs, this.periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Take a final sample so the last values stay visible, then unregister.
+    // Safe to call after a failed start() and more than once.
+    public void stop() {
+        if (this.names == null) {
+            return;
+        }
+        if (this.sampler != null) {
+            this.sampler.shutdownNow();
+            sample();
+            this.sampler = null;
+        }
+        for (ObjectName name : this.names) {
+            if (name == null) {
+                continue;
+            }
+            try {
+                this.server.unregisterMBean(name);
+            }
+            catch (JMException e) {
+                // Already gone, nothing to clean up
+            }
+        }
+        this.names = null;
+    }
+
+    void sample() {
+        long now = System.nanoTime();
+        int current = this.position;
+        for (CacheStats level : this.levels) {
+            level.sample();
+        }
+        double seconds = (now - this.lastNanos) / 1e9;
+        if (seconds > 0) {
+            this.accessesPerSecond = (current - this.lastPosition) / seconds;
+        }
+        this.elapsedSeconds = (now - this.startNanos) / 1e9;
+        this.sampledPosition = current;
+        this.lastNanos = now;
+        this.lastPosition = current;
+    }
+
+    public String getTraceFile() {
+        return this.traceFile;
+    }
+
+    public int getPosition() {
+        return this.sampledPosition;
+    }
+
+    public int getTotalReferences() {
+        return this.totalReferences;
+    }
+
+    // Share of the trace simulated, -1 if the length isn't known
+    public double getProgress() {
+        if (this.totalReferences < 0) {
+            return -1;
+        }
+        if (this.totalReferences == 0) {
+            return 1;
+        }
+        return (double)this.sampledPosition / this.totalReferences;
+    }
+
+    public double getAccessesPerSecond() {
+        return this.accessesPerSecond;
+    }
+
+    public double getElapsedSeconds() {
+        return this.elapsedSeconds;
+    }
+
+    // Remaining references at the most recent sampled rate, -1 until known
+    // or if the trace length isn't known
+    public double getEtaSeconds() {
+        double rate = this.accessesPerSecond;
+        if (rate <= 0 || this.totalReferences < 0) {
+            return -1;
+        }
+        return (this.totalReferences - this.sampledPosition) / rate;
+    }
+}
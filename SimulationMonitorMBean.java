@@ -0,0 +1,10 @@
+// JMX view of a running simulation, see SimulationMonitor
+public interface SimulationMonitorMBean {
+    String getTraceFile();
+    int getPosition();
+    int getTotalReferences();
+    double getProgress();
+    double getAccessesPerSecond();
+    double getElapsedSeconds();
+    double getEtaSeconds();
+}
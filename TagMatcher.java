@@ -0,0 +1,40 @@
+// Finds the way of a set whose stored block address equals the target. This
+// scalar version is always available; VectorTagMatcher compares several ways
+// per instruction when the jdk.incubator.vector module is present. Both work
+// on HeapLineStore's flat block array, where the ways of a set are contiguous.
+public class TagMatcher {
+    // Input: The block array, the index of the set's first way, the number of
+    // ways and the block address to look for
+    // Output: The first matching way, or -1
+    int find(long[] blocks, int base, int assoc, long target) {
+        for (int i = 0; i < assoc; i++) {
+            if (blocks[base + i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String name() {
+        return "scalar";
+    }
+
+    // Input: "scalar", "vector" or "auto"
+    // Output: The matcher to use for this run. "auto" picks the vector version
+    // if the JVM was started with --add-modules jdk.incubator.vector and
+    // falls back to scalar otherwise; "vector" fails without the module.
+    static TagMatcher select(String mode) {
+        if (mode.equals("scalar")) {
+            return new TagMatcher();
+        }
+        try {
+            return (TagMatcher)Class.forName("VectorTagMatcher").getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            if (mode.equals("vector")) {
+                throw new IllegalStateException("Vector API unavailable, run with --add-modules jdk.incubator.vector", e);
+            }
+            return new TagMatcher();
+        }
+    }
+}
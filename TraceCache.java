@@ -0,0 +1,73 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Parsed traces kept in memory by sim_server so repeated jobs on the same
+// trace skip reading and parsing it. Entries are keyed by absolute path and
+// address width, and are dropped when the file's size or mtime changes.
+// The cache holds at most {maxReferences} commands in total and evicts the
+// least recently used traces first. The lists handed out are read-only and
+// shared between concurrent jobs.
+public class TraceCache {
+    long maxReferences;
+    long references; // Commands currently held
+    LinkedHashMap<String, Entry> entries; // Access order, guarded by this
+
+    static class Entry {
+        long size;
+        long mtime;
+        List<Command> commands;
+    }
+
+    public TraceCache(long maxReferences) {
+        this.maxReferences = maxReferences;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    }
+
+    // Input: A trace file name and the address width
+    // Output: The trace's commands, parsed now if not cached or out of date
+    public List<Command> get(String file, int addrBits) throws IOException {
+        Path path = Paths.get(file).toAbsolutePath().normalize();
+        String key = path + "#" + addrBits;
+        long size = Files.size(path);
+        long mtime = Files.getLastModifiedTime(path).toMillis();
+
+        synchronized (this) {
+            Entry entry = this.entries.get(key);
+            if (entry != null && entry.size == size && entry.mtime == mtime) {
+                return entry.commands;
+            }
+        }
+
+        // Parse outside the lock so other traces stay available; two jobs
+        // missing on the same trace at once both parse it
+        Entry entry = new Entry();
+        entry.size = size;
+        entry.mtime = mtime;
+        entry.commands = Collections.unmodifiableList(sim_cache.readTrace(file, addrBits));
+
+        synchronized (this) {
+            Entry old = this.entries.put(key, entry);
+            if (old != null) {
+                this.references -= old.commands.size();
+            }
+            this.references += entry.commands.size();
+            Iterator<Map.Entry<String, Entry>> eldest = this.entries.entrySet().iterator();
+            while (this.references > this.maxReferences && this.entries.size() > 1) {
+                Entry evicted = eldest.next().getValue();
+                if (evicted == entry) { // Keep the trace just loaded even if it alone is over the limit
+                    continue;
+                }
+                this.references -= evicted.commands.size();
+                eldest.remove();
+            }
+        }
+        return entry.commands;
+    }
+}
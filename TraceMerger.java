@@ -0,0 +1,249 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// Several traces merged into one multi-programmed reference stream. Each
+// trace is read by its own thread into a few fixed-size chunks queued for
+// the simulating thread, so every input streams concurrently and memory
+// stays bounded no matter how long the traces are. A merged reference
+// carries its trace's index as the stream ID and is moved into that
+// stream's own address space by adding index * {offset}, so programs don't
+// alias. Interleaving is round-robin, weighted (w_i references of trace i
+// per round) or by rate (trace i issues r_i references per unit of time,
+// the next reference is the one due first). A trace that ends drops out
+// and the others carry on. The readers start with start() and must be
+// stopped with close(), or an abandoned merge leaves them blocked holding
+// their chunks.
+public class TraceMerger implements TraceSource {
+    static final int CHUNK = 4096; // References per buffer handed over by a reader
+    static final int DEPTH = 4; // Buffers queued per trace
+    static final Command[] END = new Command[0];
+
+    // Interleaving modes
+    static final int ROUND_ROBIN = 0;
+    static final int WEIGHTED = 1;
+    static final int RATE = 2;
+
+    Input[] inputs;
+    int mode;
+    double[] shares; // Weights or rates, per trace
+    int current; // Trace being drawn from (round-robin and weighted)
+    int left; // References still due from it in this round
+    double[] due; // Rate: when each trace issues its next reference
+
+    // One trace's reader thread and the chunks it has read ahead
+    static class Input implements Runnable {
+        String file;
+        int stream;
+        long offset;
+        int addrBits;
+        long mask;
+        Thread thread;
+        ArrayBlockingQueue<Command[]> queue = new ArrayBlockingQueue<Command[]>(DEPTH);
+        Command[] chunk;
+        int pos;
+        boolean done;
+        volatile IOException error;
+
+        Input(String file, int stream, long offset, int addrBits, int mergedBits) {
+            this.file = file;
+            this.stream = stream;
+            this.offset = offset;
+            this.addrBits = addrBits;
+            this.mask = (mergedBits == 64) ? -1L : (1L << mergedBits) - 1;
+        }
+
+        public void run() {
+            Command[] buffer = new Command[CHUNK];
+            int count = 0;
+            try {
+                if (BinaryTrace.isBinary(this.file)) {
+                    try (BinaryTrace.Reader reader = new BinaryTrace.Reader(this.file, this.addrBits)) {
+                        Command command;
+                        while ((command = reader.next()) != null) {
+                            buffer[count++] = place(command);
+                            if (count == CHUNK) {
+                                this.queue.put(buffer);
+                                buffer = new Command[CHUNK];
+                                count = 0;
+                            }
+                        }
+                    }
+                }
+                else {
+                    try (BufferedReader reader = new BufferedReader(new FileReader(this.file))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            buffer[count++] = place(sim_cache.parseCommand(line, this.addrBits));
+                            if (count == CHUNK) {
+                                this.queue.put(buffer);
+                                buffer = new Command[CHUNK];
+                                count = 0;
+                            }
+                        }
+                    }
+                }
+                if (count > 0) {
+                    this.queue.put(Arrays.copyOf(buffer, count));
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                this.error = (e instanceof IOException) ? (IOException)e : new IOException(this.file + ": " + e.getMessage());
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            try {
+                this.queue.put(END);
+            }
+            catch (InterruptedException e) {
+                // Nobody is reading any more
+            }
+        }
+
+        Command place(Command command) {
+            command.addr = (command.addr + this.stream * this.offset) & this.mask;
+            command.stream = this.stream;
+            return command;
+        }
+
+        // Output: The trace's next reference, or null once it has ended
+        Command next() {
+            if (this.done) {
+                return null;
+            }
+            if (this.chunk == null || this.pos == this.chunk.length) {
+                try {
+                    this.chunk = this.queue.take();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    this.chunk = END;
+                }
+                this.pos = 0;
+                if (this.chunk == END) {
+                    this.done = true;
+                    return null;
+                }
+            }
+            return this.chunk[this.pos++];
+        }
+    }
+
+    // Input: The trace files, the interleaving ("rr", "weights=<w>,<w>,..."
+    // or "rates=<r>,<r>,...", one value per trace), the traces' address
+    // width, the offset between streams and the merged address width
+    // Output: The merger, its readers not started yet
+    public TraceMerger(String[] files, String interleave, int addrBits, long offset, int mergedBits) {
+        parseInterleave(interleave, files.length);
+        this.inputs = new Input[files.length];
+        for (int i = 0; i < files.length; i++) {
+            this.inputs[i] = new Input(files[i], i, offset, addrBits, mergedBits);
+            this.inputs[i].thread = new Thread(this.inputs[i], "trace-reader-" + i);
+            this.inputs[i].thread.setDaemon(true); // Never keeps the JVM alive
+        }
+        if (this.mode == RATE) {
+            this.due = new double[files.length];
+            for (int i = 0; i < files.length; i++) {
+                this.due[i] = 1 / this.shares[i];
+            }
+        }
+        this.left = share(0);
+    }
+
+    void parseInterleave(String spec, int traces) {
+        if (spec.equals("rr")) {
+            this.mode = ROUND_ROBIN;
+            return;
+        }
+        String[] pair = spec.split("=", 2);
+        if (pair.length == 2 && (pair[0].equals("weights") || pair[0].equals("rates"))) {
+            this.mode = pair[0].equals("weights") ? WEIGHTED : RATE;
+            String[] values = pair[1].split(",");
+            this.shares = new double[traces];
+            try {
+                for (int i = 0; i < traces && values.length == traces; i++) {
+                    this.shares[i] = Double.parseDouble(values[i]);
+                    if (!(this.shares[i] > 0) || (this.mode == WEIGHTED && this.shares[i] != Math.rint(this.shares[i]))) {
+                        break;
+                    }
+                    if (i == traces - 1) {
+                        return;
+                    }
+                }
+            }
+            catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new IllegalArgumentException("Invalid interleaving: " + spec + " (rr, or positive weights or rates, one per trace)");
+    }
+
+    // Starts reading every trace ahead
+    public void start() {
+        for (Input input : this.inputs) {
+            input.thread.start();
+        }
+    }
+
+    // Stops the readers, wherever the merge got to. Their queued chunks go
+    // with the merger.
+    public void close() {
+        for (Input input : this.inputs) {
+            input.thread.interrupt();
+        }
+    }
+
+    int share(int trace) {
+        return (this.mode == WEIGHTED) ? (int)this.shares[trace] : 1;
+    }
+
+    // Output: The next reference of the merged stream, or null once every
+    // trace has ended
+    public Command next() {
+        if (this.mode == RATE) {
+            while (true) {
+                int first = -1;
+                for (int i = 0; i < this.inputs.length; i++) {
+                    if (!this.inputs[i].done && (first < 0 || this.due[i] < this.due[first])) {
+                        first = i;
+                    }
+                }
+                if (first < 0) {
+                    return null;
+                }
+                Command command = this.inputs[first].next();
+                if (command != null) {
+                    this.due[first] += 1 / this.shares[first];
+                    return command;
+                }
+            }
+        }
+        for (int tries = 0; tries <= this.inputs.length; ) {
+            if (this.left == 0 || this.inputs[this.current].done) {
+                this.current = (this.current + 1) % this.inputs.length;
+                this.left = share(this.current);
+                tries++;
+                continue;
+            }
+            Command command = this.inputs[this.current].next();
+            if (command != null) {
+                this.left--;
+                return command;
+            }
+        }
+        return null;
+    }
+
+    // Output: The first read error of any trace, or null
+    public IOException error() {
+        for (Input input : this.inputs) {
+            if (input.error != null) {
+                return input.error;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+// One trace file, text or a BinaryTrace, streamed a reference at a time on
+// the simulating thread. The bounded-lookahead optimal policy reads its
+// window ahead from it, so memory follows the window, not the trace.
+public class TraceReader implements TraceSource {
+    int addrBits;
+    BinaryTrace.Reader binary; // null for a text trace
+    BufferedReader text;
+    IOException error;
+
+    // Input: A trace file name and the address width
+    // Output: The reader, open on the file
+    public TraceReader(String file, int addrBits) throws IOException {
+        this.addrBits = addrBits;
+        if (BinaryTrace.isBinary(file)) {
+            this.binary = new BinaryTrace.Reader(file, addrBits);
+        }
+        else {
+            this.text = new BufferedReader(new FileReader(file));
+        }
+    }
+
+    public Command next() {
+        if (this.error != null) {
+            return null;
+        }
+        try {
+            if (this.binary != null) {
+                return this.binary.next();
+            }
+            String line = this.text.readLine();
+            return (line != null) ? sim_cache.parseCommand(line, this.addrBits) : null;
+        }
+        catch (IOException e) {
+            this.error = e;
+            return null;
+        }
+    }
+
+    public IOException error() {
+        return this.error;
+    }
+
+    public void close() {
+        try {
+            if (this.binary != null) {
+                this.binary.close();
+            }
+            else {
+                this.text.close();
+            }
+        }
+        catch (IOException e) {
+            // Only read from, nothing is lost
+        }
+    }
+}
@@ -0,0 +1,15 @@
+import java.io.IOException;
+
+// A trace read a reference at a time while the simulation runs instead of
+// held whole: TraceReader streams one file, TraceMerger several. A read
+// error ends the trace early and is kept for error().
+public interface TraceSource {
+    // Output: The next reference, or null once the trace has ended
+    Command next();
+
+    // Output: The first read error, or null
+    IOException error();
+
+    // Stops reading, wherever the simulation got to
+    void close();
+}
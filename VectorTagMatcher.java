@@ -0,0 +1,32 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+// Tag search with the Vector API: compares SPECIES.length() ways at once
+// (4 longs with AVX2, 8 with AVX-512) and finishes any remainder one way at a
+// time. Only loaded through TagMatcher.select so the simulator still runs on
+// JVMs started without the incubator module.
+public class VectorTagMatcher extends TagMatcher {
+    static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    int find(long[] blocks, int base, int assoc, long target) {
+        int i = 0;
+        int bound = SPECIES.loopBound(assoc);
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Long> match = LongVector.fromArray(SPECIES, blocks, base + i).eq(target);
+            if (match.anyTrue()) {
+                return i + match.firstTrue();
+            }
+        }
+        for (; i < assoc; i++) {
+            if (blocks[base + i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String name() {
+        return "vector (" + SPECIES.length() + " x 64-bit lanes)";
+    }
+}
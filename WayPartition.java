@@ -0,0 +1,217 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Way partitioning of a cache shared by several streams (the programs of a
+// tagged trace). Every stream has a quota of ways per set: a stream below
+// its quota replaces the LRU line of a stream above its own, one at or above
+// its quota replaces its own LRU line, so a set converges to the quotas
+// without flushing anything when they change.
+// Quotas are fixed, or with UCP (Qureshi and Patt, "Utility-Based Cache
+// Partitioning", MICRO 2006) recomputed every {period} accesses. Each stream
+// has a utility monitor: an LRU shadow tag stack as deep as the cache on a
+// few sampled sets, counting its hits at every stack position, i.e. how many
+// hits each extra way would buy. The lookahead algorithm then hands out the
+// ways by best marginal utility, and the counters are halved so older
+// behaviour fades.
+public class WayPartition {
+    static final int MAX_SAMPLED_SETS = 32;
+
+    int streams;
+    int assoc;
+    int[] quota; // Ways per set, summing to assoc
+    int period; // Accesses between repartitions, 0 = static quotas
+    byte[] owner; // Per line [set * assoc + way], the stream that filled it
+    int[] held = new int[Byte.MAX_VALUE]; // Scratch, lines of each stream in the set being replaced
+
+    // Utility monitors, indexed [stream][sampled set * assoc + stack position]
+    int sampleSpacing;
+    int sampledSets;
+    long[][] shadow; // Block addresses, MRU first, -1 = empty
+    long[][] stackHits; // [stream][stack position]
+    long untilRepartition;
+
+    // Performance tracking
+    long time; // Accesses so far
+    long[] accesses;
+    long[] misses;
+    int numChanges; // Repartitions that moved at least one way
+    List<Long> changeTimes = new ArrayList<Long>(); // Access count of each change...
+    List<int[]> changeQuotas = new ArrayList<int[]>(); // ...and the quotas it set
+
+    // Input: The quotas (one per stream, summing to the associativity) or
+    // null for an equal split, the partitioned cache's geometry and the
+    // repartitioning period (0 for static quotas)
+    public WayPartition(int[] quota, int streams, int numSets, int assoc, int period) {
+        if (quota == null) {
+            quota = new int[streams];
+            for (int s = 0; s < streams; s++) {
+                quota[s] = assoc / streams + ((s < assoc % streams) ? 1 : 0);
+            }
+        }
+        if (streams < 1 || streams > Byte.MAX_VALUE || quota.length != streams || Arrays.stream(quota).sum() != assoc
+                || Arrays.stream(quota).min().getAsInt() < ((period > 0) ? 1 : 0)) {
+            throw new IllegalArgumentException("Way quotas must sum to the L2 associativity, UCP needs a way per stream");
+        }
+        this.streams = streams;
+        this.assoc = assoc;
+        this.quota = quota;
+        this.period = period;
+        this.owner = new byte[numSets * assoc];
+        this.accesses = new long[streams];
+        this.misses = new long[streams];
+        if (period > 0) {
+            this.sampledSets = Math.min(MAX_SAMPLED_SETS, numSets);
+            this.sampleSpacing = numSets / this.sampledSets;
+            this.shadow = new long[streams][this.sampledSets * assoc];
+            this.stackHits = new long[streams][assoc];
+            for (int s = 0; s < streams; s++) {
+                Arrays.fill(this.shadow[s], -1L);
+            }
+            this.untilRepartition = period;
+        }
+    }
+
+    // Input: A comma-separated quota list, e.g. "4,12", or "ucp=<streams>",
+    // the cache's geometry and the UCP period
+    // Output: The partitioning
+    public static WayPartition parse(String spec, int numSets, int assoc, int period) {
+        try {
+            if (spec.startsWith("ucp=")) {
+                return new WayPartition(null, Integer.parseInt(spec.substring(4)), numSets, assoc, period);
+            }
+            int[] quota = Arrays.stream(spec.split(",")).mapToInt(Integer::parseInt).toArray();
+            return new WayPartition(quota, quota.length, numSets, assoc, 0);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid partition: " + spec);
+        }
+    }
+
+    // Clears performance counters, quotas and monitors stay
+    public void resetStats() {
+        Arrays.fill(this.accesses, 0);
+        Arrays.fill(this.misses, 0);
+        this.numChanges = 0;
+        this.changeTimes.clear();
+        this.changeQuotas.clear();
+    }
+
+    // Input: A stream ID from the trace
+    // Output: The partition it belongs to
+    int streamOf(int stream) {
+        return Math.floorMod(stream, this.streams);
+    }
+
+    // Input: The set an access maps to, its block address and stream
+    // Output: Void, counts the access, feeds the stream's utility monitor if
+    // the set is sampled and repartitions when the period is up
+    void access(int set, long block, int stream) {
+        this.time++;
+        this.accesses[stream]++;
+        if (this.period == 0) {
+            return;
+        }
+        if (set % this.sampleSpacing == 0 && set / this.sampleSpacing < this.sampledSets) {
+            long[] stack = this.shadow[stream];
+            int base = (set / this.sampleSpacing) * this.assoc;
+            int position = this.assoc - 1; // Not found: the LRU entry drops out
+            for (int i = 0; i < this.assoc; i++) {
+                if (stack[base + i] == block) {
+                    this.stackHits[stream][i]++;
+                    position = i;
+                    break;
+                }
+            }
+            System.arraycopy(stack, base, stack, base + 1, position);
+            stack[base] = block;
+        }
+        if (--this.untilRepartition == 0) {
+            repartition();
+            this.untilRepartition = this.period;
+        }
+    }
+
+    // Lookahead allocation: one way each, then repeatedly the stream whose
+    // next few ways add the most hits per way gets them
+    void repartition() {
+        int[] next = new int[this.streams];
+        Arrays.fill(next, 1);
+        int balance = this.assoc - this.streams;
+        while (balance > 0) {
+            int winner = 0;
+            int winnerWays = 1;
+            double best = -1;
+            for (int s = 0; s < this.streams; s++) {
+                long gain = 0;
+                for (int k = 1; k <= balance; k++) {
+                    gain += this.stackHits[s][next[s] + k - 1];
+                    if ((double)gain / k > best) {
+                        best = (double)gain / k;
+                        winner = s;
+                        winnerWays = k;
+                    }
+                }
+            }
+            next[winner] += winnerWays;
+            balance -= winnerWays;
+        }
+        for (int s = 0; s < this.streams; s++) {
+            for (int i = 0; i < this.assoc; i++) {
+                this.stackHits[s][i] /= 2;
+            }
+        }
+        if (!Arrays.equals(next, this.quota)) {
+            this.quota = next;
+            this.numChanges++;
+            this.changeTimes.add(this.time);
+            this.changeQuotas.add(next.clone());
+        }
+    }
+
+    // Input: The line filled and the stream it was filled for
+    void fill(int set, int way, int stream) {
+        this.owner[set * this.assoc + way] = (byte)stream;
+    }
+
+    // Input: The lines, the set of each way (all full) and the stream missing
+    // Output: The invalid way or the LRU line the quotas allow the stream to
+    // replace, or -1 if none (a stream with no lines and no ways of its own)
+    int victim(LineStore lines, int[] sets, int stream) {
+        Arrays.fill(this.held, 0, this.streams, 0);
+        for (int i = 0; i < this.assoc; i++) {
+            if (!lines.valid(sets[i], i)) {
+                return i;
+            }
+            this.held[this.owner[sets[i] * this.assoc + i]]++;
+        }
+        boolean own = this.held[stream] >= this.quota[stream];
+        int victimWay = -1;
+        int lruCycle = Integer.MAX_VALUE;
+        for (int i = 0; i < this.assoc; i++) {
+            int o = this.owner[sets[i] * this.assoc + i];
+            boolean allowed = own ? o == stream : (o != stream && this.held[o] > this.quota[o]);
+            if (allowed && lines.meta(sets[i], i) < lruCycle) {
+                victimWay = i;
+                lruCycle = lines.meta(sets[i], i);
+            }
+        }
+        return victimWay;
+    }
+
+    // Input: A stream
+    // Output: Its hit rate over the accesses counted
+    double hitRate(int stream) {
+        return (this.accesses[stream] > 0) ? 1 - (double)this.misses[stream] / this.accesses[stream] : 0;
+    }
+
+    // Input: Quotas
+    // Output: Them as a comma-separated list
+    static String format(int[] quota) {
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < quota.length; s++) {
+            text.append((s > 0) ? "," : "").append(quota[s]);
+        }
+        return text.toString();
+    }
+}
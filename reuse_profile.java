@@ -0,0 +1,159 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Trace analysis companion to sim_cache. For every trace it computes, per
+// block reference, the reuse distance (references since the block was last
+// touched) and the LRU stack distance (distinct blocks touched since then),
+// and prints both as log2-bucketed histograms. The stack distance histogram
+// gives the hit rate of a fully-associative LRU cache of any size directly.
+// Traces may be text or BinaryTrace files, as for sim_cache.
+//
+// Stack distances come from a Fenwick tree over access timestamps holding a 1
+// at each block's most recent access, so every reference costs O(log n).
+class reuse_profile {
+	public static void main(String[] args) {
+		// reuse_profile <BLOCKSIZE> <trace_file> [<trace_file> ...]
+		if (args.length < 2) {
+			System.out.println("Invalid arguments");
+			return;
+		}
+		int blocksize = Integer.parseInt(args[0]);
+		int offsetBits = (int)(Math.log(blocksize) / Math.log(2));
+
+		for (int f = 1; f < args.length; f++) {
+			long[] blocks;
+			try {
+				blocks = readBlocks(args[f], offsetBits);
+			}
+			catch (IOException e) {
+				System.out.println("File error: " + e.getMessage());
+				continue;
+			}
+			profile(args[f], blocksize, blocks);
+		}
+	}
+
+	// Input: A trace file name (text, or a BinaryTrace) and the number of
+	// block offset bits
+	// Output: The block address of every reference, in trace order
+	static long[] readBlocks(String file, int offsetBits) throws IOException {
+		long[] blocks = new long[1 << 16];
+		int n = 0;
+		if (BinaryTrace.isBinary(file)) {
+			try (BinaryTrace.Reader reader = new BinaryTrace.Reader(file, 64)) {
+				Command command;
+				while ((command = reader.next()) != null) {
+					if (n == blocks.length) {
+						blocks = Arrays.copyOf(blocks, n * 2);
+					}
+					blocks[n++] = command.addr >>> offsetBits;
+				}
+			}
+			return Arrays.copyOf(blocks, n);
+		}
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] splitCommand = line.trim().split("\\s+");
+				if (splitCommand.length < 2) {
+					continue;
+				}
+				if (n == blocks.length) {
+					blocks = Arrays.copyOf(blocks, n * 2);
+				}
+				blocks[n++] = Long.parseUnsignedLong(splitCommand[1], 16) >>> offsetBits;
+			}
+		}
+		return Arrays.copyOf(blocks, n);
+	}
+
+	static void profile(String file, int blocksize, long[] blocks) {
+		int n = blocks.length;
+		int[] fenwick = new int[n + 1]; // 1-based, indexed by access time
+		HashMap<Long, Integer> lastAccess = new HashMap<Long, Integer>();
+		long[] reuseHist = new long[34];
+		long[] stackHist = new long[34];
+		long[] stackExact = new long[16]; // Exact stack distance counts, grown on demand
+		long cold = 0;
+
+		for (int t = 1; t <= n; t++) {
+			Integer last = lastAccess.put(blocks[t - 1], t);
+			if (last == null) {
+				cold++;
+			}
+			else {
+				int reuse = t - last - 1;
+				// Blocks whose latest access falls strictly between last and t
+				int stack = prefixSum(fenwick, t - 1) - prefixSum(fenwick, last);
+				reuseHist[bucket(reuse)]++;
+				stackHist[bucket(stack)]++;
+				if (stack >= stackExact.length) {
+					stackExact = Arrays.copyOf(stackExact, Math.max(stack + 1, stackExact.length * 2));
+				}
+				stackExact[stack]++;
+				add(fenwick, last, -1);
+			}
+			add(fenwick, t, 1);
+		}
+
+		System.out.println("===== Reuse profile =====");
+		System.out.println("trace_file:		" + file);
+		System.out.println("BLOCKSIZE:		" + blocksize);
+		System.out.println("references:		" + n);
+		System.out.println("distinct blocks:	" + lastAccess.size());
+		System.out.println("cold references:	" + cold);
+		printHistogram("===== Reuse distance histogram =====", reuseHist, n);
+		printHistogram("===== Stack distance histogram =====", stackHist, n);
+
+		// A fully-associative LRU cache of C blocks hits exactly the references
+		// with stack distance < C
+		System.out.println("===== Fully-associative LRU hit rate =====");
+		long hits = 0;
+		int next = 0;
+		for (long capacity = 1; ; capacity <<= 1) {
+			while (next < capacity && next < stackExact.length) {
+				hits += stackExact[next++];
+			}
+			System.out.println(String.format("%-10d blocks (%d B):	%.6f", capacity, capacity * blocksize, (n > 0) ? (double)hits / n : 0.0));
+			if (capacity >= lastAccess.size()) { // Only cold misses left
+				break;
+			}
+		}
+		System.out.println("");
+	}
+
+	// Bucket 0 holds distance 0, bucket k holds [2^(k-1), 2^k - 1]
+	static int bucket(int distance) {
+		return 32 - Integer.numberOfLeadingZeros(distance);
+	}
+
+	static void printHistogram(String title, long[] hist, int total) {
+		System.out.println(title);
+		int top = hist.length - 1;
+		while (top > 0 && hist[top] == 0) {
+			top--;
+		}
+		for (int k = 0; k <= top; k++) {
+			long low = (k == 0) ? 0 : (1L << (k - 1));
+			long high = (k == 0) ? 0 : (1L << k) - 1;
+			System.out.println(String.format("[%d, %d]:	%d	%.6f", low, high, hist[k], (total > 0) ? (double)hist[k] / total : 0.0));
+		}
+	}
+
+	static void add(int[] fenwick, int i, int delta) {
+		for (; i < fenwick.length; i += i & -i) {
+			fenwick[i] += delta;
+		}
+	}
+
+	static int prefixSum(int[] fenwick, int i) {
+		int sum = 0;
+		for (; i > 0; i -= i & -i) {
+			sum += fenwick[i];
+		}
+		return sum;
+	}
+}
@@ -1,229 +1,851 @@
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.AbstractMap;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Queue;
+import javax.management.JMException;
 
 class sim_cache {
+	static final String[] POLICY_NAMES = {"LRU", "FIFO", "optimal", "Hawkeye"};
+	static final String[] INCLUSION_NAMES = {"non-inclusive", "inclusive"};
+	static final String[] INDEX_NAMES = {"mod", "xor", "prime", "skew"}; // Cache.INDEX_ order
+	static final String[] INSERTION_NAMES = {"mru", "lip", "bip", "dip"}; // Cache.INSERT_ order
+
 	public static void main(String[] args) {
-		// sim_cache  <BLOCKSIZE> <L1_SIZE> <L1_ASSOC> <L2_SIZE> <L2_ASSOC> <REPLACEMENT_POLICY> <INCLUSION_PROPERTY> <trace_file>
+		// One large buffer instead of System.out's flush per line
+		PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+		run(args, null, out, null);
+		out.flush();
+	}
+
+	// Input: The command-line arguments, the directory a relative trace name
+	// is resolved against (null for the working directory), where to print the
+	// results and the parsed traces to reuse (null to always read the trace file)
+	// Output: 0 if the simulation ran, 1 if the arguments or an input file were bad
+	static int run(String[] args, String dir, PrintStream out, TraceCache traces) {
+		// sim_cache  <BLOCKSIZE> <L1_SIZE> <L1_ASSOC> <L2_SIZE> <L2_ASSOC> <REPLACEMENT_POLICY> <INCLUSION_PROPERTY> <trace_file> [options]
+		// <trace_file> may list several traces separated by commas; they are then
+		// merged into one multi-programmed stream, one stream ID per trace.
+		// Options:
+		//   -warmup <N>          exclude the first N trace references from the statistics
+		//   -checkpoint-at <N>   snapshot the hierarchy after N trace references...
+		//   -checkpoint-out <f>  ...into this file
+		//   -checkpoint-in <f>   restore a snapshot and continue the trace from its position
+		//   -interval <K>        report per-level counter deltas every K references...
+		//   -interval-format <csv|json>
+		//   -interval-out <f>    ...to this file instead of stdout
+		//   -3c                  classify misses as compulsory, capacity or conflict
+		//   -jmx [periodMs]      publish live counters, progress and ETA as JMX MBeans
+		//   -addr-bits <W>       address width in bits, up to 64 (default 32)
+		//   -offheap             keep cache lines in direct memory instead of the Java heap
+		//   -emit-l2 <f>         record the L1 -> L2 request stream (non-inclusive only)
+		//   -replay-l2 <f>       drive the L2 from a recorded stream instead of simulating L1
+		//   -tagmatch <scalar|vector|auto>  tag search implementation, default scalar (vector needs
+		//                        --add-modules jdk.incubator.vector, auto falls back to scalar)
+		//   -index <f>[,<f>]     set index function of L1 (and L2, default same as L1): mod (default),
+		//                        xor (folded), prime (modulo a prime) or skew (skewed-associative)
+		//   -insertion <p>[,<p>] LRU insertion of L1 (and L2, default same as L1): mru (default), lip
+		//                        (at LRU), bip (LIP, MRU one time in 32) or dip (set dueling MRU vs BIP)
+		//   -bip-epsilon <p>     probability of an MRU insertion under bip and dip (default 1/32)
+		//   -lookahead <W>       optimal policy sees only the next W references, blocks not among
+		//                        them count as never reused (default: the whole trace). The trace is
+		//                        then streamed W references ahead, so merged traces work too
+		//   -seed <S>            seed of the bip and dip coin flips (default 1)
+		//   -deadblock <m>       L2 dead-block prediction (sampling, by 4 KB region): bypass (don't allocate
+		//                        predicted-dead blocks; low priority when inclusive) or lowpri (insert at LRU)
+		//   -partition <q,...|ucp=N>  partition the L2 ways among the streams of a tagged trace ("r|w|i
+		//                        <hex> <stream>"): fixed quotas summing to L2_ASSOC, or UCP over N streams
+		//   -ucp-period <N>      L2 accesses between UCP repartitions (default 20000)
+		//   -sectors <n>         sectored lines: one tag per BLOCKSIZE line, n sectors each fetched and
+		//                        written back on their own (power of two up to 64, default 1)
+		//   -l1i <size>,<assoc>[,<policy>]  split L1: instruction fetches ("i <hex>" records) go to an L1I
+		//                        of this geometry (policy defaults to REPLACEMENT_POLICY), the rest to
+		//                        L1_SIZE/L1_ASSOC as the L1D; both share the L2. Without it a fetch
+		//                        is a read of the unified L1
+		//   -interleave <m>      how several traces merge: rr (default, one reference each in turn),
+		//                        weights=<w>,... (w references of each per round) or rates=<r>,...
+		//                        (relative issue rates, the reference due first goes next)
+		//   -stream-offset <hex> address offset between merged streams (default: each stream gets its
+		//                        own space above the trace addresses, which widens the address)
+		//   -energy <csv>        report access time, area, energy and EDP from a CACTI table
+		//                        (cacti_table.csv), interpolating geometries it lacks
+		//   -leakage <mW/mm2>    leakage power density for -energy (default 50)
+		//   -miss-penalty <ns>   main memory latency for -energy (default 100, or the -dram read latency)
+		//   -dram [k=v,...]      model main memory: channels, ranks, banks, row (bytes), policy (open|closed),
+		//                        sched (frfcfs|fcfs), queue, tck (ns), cl, trcd, trp, tras, burst, refi, rfc
+		//                        (clocks) and gap (clocks per cache cycle); defaults are 1 channel of
+		//                        2 ranks x 8 banks of DDR3-1600, 8 KB rows, open rows, FR-FCFS
+		//   -tlb [k=v,...]       translate through a DTLB and STLB, page walks read through L1: dtlb,
+		//                        dtlbways, stlb (0 = none), stlbways, page (4k|2m|1g), pt (hex page
+		//                        table base); defaults 64x4, 1536x12, 4k, c0000000
+		//   -format <text|json|csv>  layout of the configuration, contents and results (default text)
+		//   -contents <full|summary|none>  dump every cache line, only valid/dirty counts, or nothing
+		//   -result-cache <dir>  print a stored result for a configuration and trace already run,
+		//                        store this one otherwise (not used with file-writing options)
+		//   -result-cache-max <bytes>  size bound of the stored results, default 256 MB
 		int blocksize = -1;
-		int l1Size = -1;
+		long l1Size = -1;
 		int l1Assoc = -1;
-		int l2Size = -1;
+		long l2Size = -1;
 		int l2Assoc = -1;
-		int policy = -1; // 0 = LRU, 1 = FIFO, 2 = optimal
+		int policy = -1; // 0 = LRU, 1 = FIFO, 2 = optimal, 3 = Hawkeye
 		int inclusion = 0; // 0 = non-inclusive, 1 = inclusive
 		String file = "NULL";
-		HashMap<Map.Entry<String, Integer>, Queue<Integer>> optimalMapL1 = null;
-		HashMap<Map.Entry<String, Integer>, Queue<Integer>> optimalMapL2 = null;
+		String path = file; // file as opened, it is printed as given
+		int warmup = 0; // References excluded from statistics
+		int checkpointAt = -1; // Trace position to snapshot at, -1 = never
+		String checkpointOut = null;
+		String checkpointIn = null;
+		int interval = 0; // References per interval report, 0 = off
+		boolean intervalJson = false;
+		String intervalOut = null;
+		boolean classify3C = false;
+		long jmxPeriod = 0; // Sampling period in ms, 0 = no JMX
+		int addrBits = 32;
+		boolean offHeap = false;
+		String tagMatch = "scalar";
+		String emitOut = null; // Miss stream to record
+		String replayIn = null; // Miss stream to replay
+		String resultCache = null; // Result store directory
+		int l1Index = Cache.INDEX_MOD;
+		int l2Index = Cache.INDEX_MOD;
+		int l1Insertion = Cache.INSERT_MRU;
+		int l2Insertion = Cache.INSERT_MRU;
+		double bipEpsilon = 1.0 / 32;
+		long seed = 1;
+		int lookahead = 0; // Optimal policy's window, 0 = the whole trace
+		String deadBlock = null; // bypass or lowpri, null = no dead-block prediction
+		String partitionSpec = null; // L2 way quotas or ucp=<streams>, null = shared freely
+		int ucpPeriod = 20000;
+		String interleave = "rr";
+		int sectors = 0; // Sectors per line, 0 = plain lines and no sectoring report
+		boolean splitL1 = false; // Fetches to an L1I of their own instead of the unified L1
+		long l1iSize = 0;
+		int l1iAssoc = 0;
+		int l1iPolicy = -1; // -1 = REPLACEMENT_POLICY
+		long streamOffset = -1; // -1 = one stream per address space above the trace's width
+		String energyTable = null; // CACTI CSV, null = no energy report
+		double leakageDensity = EnergyModel.DEFAULT_LEAKAGE_DENSITY;
+		double missPenalty = EnergyModel.DEFAULT_MISS_PENALTY;
+		boolean missPenaltyGiven = false;
+		boolean dramOn = false;
+		String dramSpec = null; // key=value settings, null for the defaults
+		boolean tlbOn = false;
+		String tlbSpec = null;
+		int format = Report.TEXT;
+		int contents = Report.CONTENTS_FULL;
+		long resultCacheMax = ResultStore.DEFAULT_MAX_BYTES;
+		HashMap<Long, Queue<Integer>> optimalMapL1 = null;
+		HashMap<Long, Queue<Integer>> optimalMapL2 = null;
 
 		// Initialize variables
 		float l1MissRate = 0; // (Reads + Writes) / (ReadMisses + WriteMisses)
 		float l2MissRate = 0; // (Reads + Writes) / (ReadMisses + WriteMisses)
 		int totalMemTraffic = 0; // Blocks traveling to or from main memory
-		// Each command has an address and a cmd code 'r' or 'w'
+		// Each command has an address and a cmd code 'r', 'w' or 'i'
 		List<Command> commands = new ArrayList<Command>();
 
 		// Capture command-line arguments
-		if (args.length == 8) {
+		if (args.length >= 8) {
 				blocksize = Integer.parseInt(args[0]);
-				l1Size = Integer.parseInt(args[1]);
+				l1Size = Long.parseLong(args[1]);
 				l1Assoc = Integer.parseInt(args[2]);
-				l2Size = Integer.parseInt(args[3]);
+				l2Size = Long.parseLong(args[3]);
 				l2Assoc = Integer.parseInt(args[4]);
 				policy = Integer.parseInt(args[5]);
 				inclusion = Integer.parseInt(args[6]);
 				file = args[7];
+				path = (dir != null) ? Paths.get(dir).resolve(file).toString() : file;
 		}
 		else {
-			System.out.println("Invalid arguments");
+			out.println("Invalid arguments");
+			return 1;
+		}
+		for (int a = 8; a < args.length; a++) { // Optional flags after the positional arguments
+			if (args[a].equals("-warmup") && a + 1 < args.length) {
+				warmup = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-checkpoint-at") && a + 1 < args.length) {
+				checkpointAt = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-checkpoint-out") && a + 1 < args.length) {
+				checkpointOut = args[++a];
+			}
+			else if (args[a].equals("-checkpoint-in") && a + 1 < args.length) {
+				checkpointIn = args[++a];
+			}
+			else if (args[a].equals("-interval") && a + 1 < args.length) {
+				interval = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-interval-format") && a + 1 < args.length) {
+				intervalJson = args[++a].equals("json");
+			}
+			else if (args[a].equals("-interval-out") && a + 1 < args.length) {
+				intervalOut = args[++a];
+			}
+			else if (args[a].equals("-3c")) {
+				classify3C = true;
+			}
+			else if (args[a].equals("-addr-bits") && a + 1 < args.length) {
+				addrBits = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-offheap")) {
+				offHeap = true;
+			}
+			else if (args[a].equals("-emit-l2") && a + 1 < args.length) {
+				emitOut = args[++a];
+			}
+			else if (args[a].equals("-replay-l2") && a + 1 < args.length) {
+				replayIn = args[++a];
+			}
+			else if (args[a].equals("-tagmatch") && a + 1 < args.length) {
+				tagMatch = args[++a];
+			}
+			else if (args[a].equals("-index") && a + 1 < args.length) {
+				String[] names = args[++a].split(",");
+				l1Index = Arrays.asList(INDEX_NAMES).indexOf(names[0]);
+				l2Index = (names.length > 1) ? Arrays.asList(INDEX_NAMES).indexOf(names[1]) : l1Index;
+				if (l1Index < 0 || l2Index < 0 || names.length > 2) {
+					out.println("Invalid index function: " + args[a]);
+					return 1;
+				}
+			}
+			else if (args[a].equals("-insertion") && a + 1 < args.length) {
+				String[] names = args[++a].split(",");
+				l1Insertion = Arrays.asList(INSERTION_NAMES).indexOf(names[0]);
+				l2Insertion = (names.length > 1) ? Arrays.asList(INSERTION_NAMES).indexOf(names[1]) : l1Insertion;
+				if (l1Insertion < 0 || l2Insertion < 0 || names.length > 2) {
+					out.println("Invalid insertion policy: " + args[a]);
+					return 1;
+				}
+			}
+			else if (args[a].equals("-bip-epsilon") && a + 1 < args.length) {
+				bipEpsilon = Double.parseDouble(args[++a]);
+			}
+			else if (args[a].equals("-lookahead") && a + 1 < args.length) {
+				lookahead = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-deadblock") && a + 1 < args.length) {
+				deadBlock = args[++a];
+				if (!deadBlock.equals("bypass") && !deadBlock.equals("lowpri")) {
+					out.println("Invalid dead-block mode: " + deadBlock);
+					return 1;
+				}
+			}
+			else if (args[a].equals("-partition") && a + 1 < args.length) {
+				partitionSpec = args[++a];
+			}
+			else if (args[a].equals("-ucp-period") && a + 1 < args.length) {
+				ucpPeriod = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-sectors") && a + 1 < args.length) {
+				sectors = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-l1i") && a + 1 < args.length) {
+				String[] geometry = args[++a].split(",");
+				if (geometry.length < 2 || geometry.length > 3) {
+					out.println("-l1i takes <size>,<assoc>[,<policy>]");
+					return 1;
+				}
+				splitL1 = true;
+				l1iSize = Long.parseLong(geometry[0]);
+				l1iAssoc = Integer.parseInt(geometry[1]);
+				l1iPolicy = (geometry.length == 3) ? Integer.parseInt(geometry[2]) : -1;
+			}
+			else if (args[a].equals("-interleave") && a + 1 < args.length) {
+				interleave = args[++a];
+			}
+			else if (args[a].equals("-stream-offset") && a + 1 < args.length) {
+				streamOffset = Long.parseUnsignedLong(args[++a], 16);
+			}
+			else if (args[a].equals("-seed") && a + 1 < args.length) {
+				seed = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-energy") && a + 1 < args.length) {
+				energyTable = args[++a];
+			}
+			else if (args[a].equals("-leakage") && a + 1 < args.length) {
+				leakageDensity = Double.parseDouble(args[++a]);
+			}
+			else if (args[a].equals("-miss-penalty") && a + 1 < args.length) {
+				missPenalty = Double.parseDouble(args[++a]);
+				missPenaltyGiven = true;
+			}
+			else if (args[a].equals("-format") && a + 1 < args.length && Report.parseFormat(args[a + 1]) >= 0) {
+				format = Report.parseFormat(args[++a]);
+			}
+			else if (args[a].equals("-contents") && a + 1 < args.length && Report.parseContents(args[a + 1]) >= 0) {
+				contents = Report.parseContents(args[++a]);
+			}
+			else if (args[a].equals("-result-cache") && a + 1 < args.length) {
+				resultCache = args[++a];
+			}
+			else if (args[a].equals("-result-cache-max") && a + 1 < args.length) {
+				resultCacheMax = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-dram")) {
+				dramOn = true;
+				if (a + 1 < args.length && !args[a + 1].startsWith("-")) {
+					dramSpec = args[++a];
+				}
+			}
+			else if (args[a].equals("-tlb")) {
+				tlbOn = true;
+				if (a + 1 < args.length && !args[a + 1].startsWith("-")) {
+					tlbSpec = args[++a];
+				}
+			}
+			else if (args[a].equals("-jmx")) {
+				jmxPeriod = 1000;
+				if (a + 1 < args.length && !args[a + 1].startsWith("-")) {
+					jmxPeriod = Long.parseLong(args[++a]);
+				}
+			}
+			else {
+				out.println("Invalid option: " + args[a]);
+				return 1;
+			}
+		}
+		if (addrBits < 1 || addrBits > 64) {
+			out.println("Invalid address width: " + addrBits);
+			return 1;
+		}
+		if (checkpointAt >= 0 && checkpointOut == null) {
+			out.println("-checkpoint-at requires -checkpoint-out");
+			return 1;
+		}
+		if (classify3C && (checkpointIn != null || checkpointOut != null)) {
+			// Checkpoints don't hold the shadow caches, every block would look new after a restore
+			out.println("-3c can't be combined with checkpoints");
+			return 1;
+		}
+		if ((emitOut != null || replayIn != null) && inclusion != 0) {
+			// Inclusive L2 evictions invalidate L1 blocks, so the stream would depend on L2
+			out.println("-emit-l2 and -replay-l2 need a non-inclusive hierarchy");
+			return 1;
+		}
+		if (emitOut != null && checkpointIn != null) {
+			out.println("-emit-l2 records from the start of the trace, it can't follow -checkpoint-in");
+			return 1;
+		}
+		if (replayIn != null && (l2Size <= 0 || emitOut != null || checkpointIn != null || checkpointOut != null
+				|| warmup > 0 || interval > 0 || jmxPeriod > 0)) {
+			out.println("-replay-l2 needs an L2 and can't be combined with trace-driven options");
+			return 1;
+		}
+		if (lookahead < 0 || (lookahead > 0 && (policy != 2 || replayIn != null))) {
+			// A replay has no trace loop to slide the window
+			out.println("-lookahead needs the optimal policy and a positive window, and can't be combined with -replay-l2");
+			return 1;
+		}
+		if ((l1Insertion != Cache.INSERT_MRU || l2Insertion != Cache.INSERT_MRU) && policy != 0) {
+			out.println("-insertion needs the LRU policy");
+			return 1;
+		}
+		if ((l1Insertion >= Cache.INSERT_BIP || l2Insertion >= Cache.INSERT_BIP) && (checkpointIn != null || checkpointOut != null)) {
+			// Checkpoints don't hold the random state or the policy selector
+			out.println("bip and dip insertion can't be combined with checkpoints");
+			return 1;
+		}
+		if (policy == 3 && (checkpointIn != null || checkpointOut != null)) {
+			// Checkpoints don't hold the predictor or OPTgen's history
+			out.println("The Hawkeye policy can't be combined with checkpoints");
+			return 1;
+		}
+		if (deadBlock != null && (l2Assoc < 1 || l2Size < (long)blocksize * l2Assoc || policy == 2 || checkpointIn != null || checkpointOut != null)) {
+			// The sampler needs at least one L2 set; the optimal policy needs no prediction,
+			// and checkpoints don't hold the sampler
+			out.println("-deadblock needs an L2 of at least one set and can't be combined with the optimal policy or checkpoints");
+			return 1;
+		}
+		if (partitionSpec != null && (l2Size <= 0 || policy > 1 || ucpPeriod < 1 || checkpointIn != null || checkpointOut != null
+				|| emitOut != null || replayIn != null)) {
+			// Quotas pick among LRU or FIFO victims; checkpoints and miss streams don't hold stream IDs
+			out.println("-partition needs an L2, the LRU or FIFO policy and a positive period, and can't be combined with checkpoints, -emit-l2 or -replay-l2");
+			return 1;
+		}
+		if (sectors != 0 && (Integer.bitCount(sectors) != 1 || sectors > 64 || sectors > blocksize || classify3C
+				|| checkpointIn != null || checkpointOut != null || emitOut != null || replayIn != null)) {
+			// Shadow caches, checkpoints and miss streams only know whole blocks
+			out.println("-sectors must be a power of two up to 64 and BLOCKSIZE, and can't be combined with -3c, checkpoints, -emit-l2 or -replay-l2");
+			return 1;
+		}
+		if (l1iPolicy < 0) {
+			l1iPolicy = policy;
+		}
+		if (splitL1 && (l1iSize <= 0 || l1iAssoc < 1 || l1iPolicy < 0 || l1iPolicy >= POLICY_NAMES.length || policy == 2 || l1iPolicy == 2
+				|| classify3C || checkpointIn != null || checkpointOut != null || emitOut != null || replayIn != null)) {
+			// The optimal map, shadow caches, checkpoints and miss streams only know one L1
+			out.println("-l1i needs a positive size and associativity and a policy other than optimal, and can't be combined with -3c, checkpoints, -emit-l2 or -replay-l2");
+			return 1;
+		}
+		String[] traceFiles = path.split(",");
+		int traceBits = addrBits; // Width of the trace addresses, the merged streams may need more
+		if (traceFiles.length > 1) {
+			if ((policy == 2 && lookahead == 0) || checkpointIn != null || checkpointOut != null || emitOut != null || replayIn != null
+					|| resultCache != null) {
+				// Merged traces are streamed, never held whole, and no single file identifies them
+				out.println("Merged traces can't be combined with the optimal policy without -lookahead, checkpoints, -emit-l2, -replay-l2 or -result-cache");
+				return 1;
+			}
+			if (streamOffset < 0) {
+				streamOffset = (addrBits < 64) ? 1L << addrBits : 0;
+				addrBits += 32 - Integer.numberOfLeadingZeros(traceFiles.length - 1);
+				if (addrBits > 64) {
+					out.println("Merged streams don't fit 64-bit addresses, give -stream-offset");
+					return 1;
+				}
+			}
+			for (int t = 0; t < traceFiles.length; t++) {
+				traceFiles[t] = (dir != null) ? Paths.get(dir).resolve(traceFiles[t]).toString() : traceFiles[t];
+			}
+		}
+		if (tlbOn && (policy == 2 || checkpointIn != null || checkpointOut != null || replayIn != null)) {
+			// Walk reads aren't in the optimal map, and checkpoints don't hold the TLBs
+			out.println("-tlb can't be combined with the optimal policy, checkpoints or -replay-l2");
+			return 1;
+		}
+		// Runs that read or write other files, or publish over JMX, always simulate
+		if (resultCache != null && checkpointIn == null && checkpointOut == null && intervalOut == null
+				&& emitOut == null && replayIn == null && jmxPeriod == 0) {
+			ResultStore store = null;
+			try {
+				store = new ResultStore(resultCache, resultCacheMax);
+			}
+			catch (IOException e) {
+				System.err.println("Result cache error: " + e.getMessage());
+			}
+			if (store != null) {
+				int status = store.run(args, dir, path, out, traces);
+				if (store.storeError != null) {
+					// The output is still complete, only the next run will simulate again
+					System.err.println("Result cache error: " + store.storeError.getMessage());
+				}
+				return status;
+			}
 		}
 
 		if (policy == 2)
 		{
-			optimalMapL1 = new HashMap<Map.Entry<String, Integer>, Queue<Integer>>();
-			optimalMapL2 = new HashMap<Map.Entry<String, Integer>, Queue<Integer>>();
+			optimalMapL1 = new HashMap<Long, Queue<Integer>>();
+			optimalMapL2 = new HashMap<Long, Queue<Integer>>();
 		}
 		
 		// Initialize Caches
-		Cache l1Cache = new Cache(blocksize, l1Size, l1Assoc, policy, inclusion, 1, null, null, optimalMapL1);
+		Cache l1Cache = new Cache(blocksize, l1Size, l1Assoc, policy, inclusion, addrBits, offHeap, 1, null, null, optimalMapL1);
 		Cache l2Cache; // L2 always exists, but if it's size is zero, L1 won't have access to it
 		
 		if (l2Size > 0) {
-			l2Cache = new Cache(blocksize, l2Size, l2Assoc, policy, inclusion, 2, null, l1Cache, optimalMapL2);
+			l2Cache = new Cache(blocksize, l2Size, l2Assoc, policy, inclusion, addrBits, offHeap, 2, null, l1Cache, optimalMapL2);
 			l1Cache.nextLvl = l2Cache;
 		}
 		else {
-			l2Cache = new Cache(blocksize, 0, 0, policy, inclusion, 2, null, null, optimalMapL2);
+			l2Cache = new Cache(blocksize, 0, 0, policy, inclusion, addrBits, offHeap, 2, null, null, optimalMapL2);
+		}
+		Cache l1iCache = null; // Split L1: fetches go here, everything else to l1Cache as the L1D
+		if (splitL1) {
+			l1iCache = new Cache(blocksize, l1iSize, l1iAssoc, l1iPolicy, inclusion, addrBits, offHeap, 1, (l2Size > 0) ? l2Cache : null, null, null);
+			l2Cache.prevInstr = (l2Size > 0) ? l1iCache : null;
+		}
+		EnergyModel energy = null;
+		if (energyTable != null) {
+			try {
+				energy = EnergyModel.load(energyTable);
+			}
+			catch (IOException e) {
+				out.println("Energy model error: " + e.getMessage());
+				return 1;
+			}
+			energy.leakageDensity = leakageDensity;
+			energy.missPenalty = missPenalty;
 		}
 
-		// Scan input file for commands
-		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-			String line;
-			int i = 1;
-			while((line = reader.readLine()) != null) {
-				String[] splitCommand = line.split(" ");
-				char cmd = splitCommand[0].charAt(0);
-				String addr = splitCommand[1];
-				commands.add(new Command(cmd, addr));
+		Dram dram = null;
+		if (dramOn) { // Every request leaving the last level goes through the model
+			try {
+				dram = Dram.parse(dramSpec, blocksize);
+			}
+			catch (IllegalArgumentException e) {
+				out.println(e.getMessage());
+				return 1;
+			}
+			l1Cache.memory = dram;
+			l2Cache.memory = dram;
+			if (l1iCache != null) {
+				l1iCache.memory = dram;
+			}
+		}
 
-				if (policy == 2) { // preprocessing of commands to create optimal policy map
-					Queue<Integer> pairAccesses; // Each tag has a queue of when it is accessed
-					String currentTagL1 = Cache.calcTag(addr, l1Cache.tagBits);
-					Integer currentIndexL1 = Cache.calcIndex(addr, l1Cache.tagBits, l1Cache.indexBits);
-					Map.Entry<String, Integer> pairL1 = new AbstractMap.SimpleEntry<>(currentTagL1, currentIndexL1);
-					
-					if (optimalMapL1.containsKey(pairL1)) { // address has been accessed before
-						pairAccesses = optimalMapL1.get(pairL1);
-						pairAccesses.add(i); // Insert clockcycle into queue
-					}
-					else { // Address is accessed for the first time
-						// Create new queue and add first access to it
-						pairAccesses = new LinkedList<Integer>(); 
-						pairAccesses.add(i);
-						// Add new address and corresponding value Queue to map
-						optimalMapL1.put(pairL1, pairAccesses); 
-					}
-					// System.out.println("address: " + addr + " tag: " + currentTagL1 + " index: " + currentIndexL1);
-					// for (Integer a : pairAccesses) {
-					// 	System.out.print(a + "	");
-					// }
-					// System.out.println("");
-					if (l2Cache.assoc > 0) {
-						String currentTagL2 = Cache.calcTag(addr, l2Cache.tagBits);
-						Integer currentIndexL2 = Cache.calcIndex(addr, l2Cache.tagBits, l2Cache.indexBits);
-						Map.Entry<String, Integer> pairL2 = new AbstractMap.SimpleEntry<>(currentTagL2, currentIndexL2);
-						
-						if (optimalMapL2.containsKey(pairL2)) { // address has been accessed before
-							pairAccesses = optimalMapL2.get(pairL2);
-							pairAccesses.add(i); // Insert clockcycle into queue
-						}
-						else { // Address is accessed for the first time
-							// Create new queue and add first access to it
-							pairAccesses = new LinkedList<Integer>(); 
-							pairAccesses.add(i);
-							// Add new address and corresponding value Queue to map
-							optimalMapL2.put(pairL2, pairAccesses); 
-						}
-					}
-					
+		if (deadBlock != null) {
+			l2Cache.deadBlock = new DeadBlockPredictor(deadBlock.equals("bypass"), l2Cache.numSets, l2Cache.assoc, l2Cache.offsetBits);
+		}
+		if (partitionSpec != null) {
+			try {
+				l2Cache.partition = WayPartition.parse(partitionSpec, l2Cache.numSets, l2Cache.assoc, ucpPeriod);
+			}
+			catch (IllegalArgumentException e) {
+				out.println(e.getMessage());
+				return 1;
+			}
+		}
+		Mmu mmu = null;
+		if (tlbOn) {
+			try {
+				mmu = Mmu.parse(tlbSpec, addrBits);
+			}
+			catch (IllegalArgumentException e) {
+				out.println(e.getMessage());
+				return 1;
+			}
+		}
+
+		if (sectors > 0) {
+			l1Cache.setSectors(sectors);
+			l2Cache.setSectors(sectors);
+		}
+		l1Cache.setIndexFunction(l1Index);
+		l2Cache.setIndexFunction(l2Index);
+		l1Cache.setInsertion(l1Insertion, bipEpsilon, seed);
+		l2Cache.setInsertion(l2Insertion, bipEpsilon, seed + 1);
+		if (l1iCache != null) { // Same L1 index function and, under LRU, insertion, its own coin flips
+			if (sectors > 0) {
+				l1iCache.setSectors(sectors);
+			}
+			l1iCache.setIndexFunction(l1Index);
+			l1iCache.setInsertion((l1iPolicy == 0) ? l1Insertion : Cache.INSERT_MRU, bipEpsilon, seed + 2);
+		}
+		if (!offHeap) { // Vectorized search needs the flat heap arrays
+			try {
+				TagMatcher matcher = TagMatcher.select(tagMatch);
+				l1Cache.matcher = matcher;
+				l2Cache.matcher = matcher;
+				if (l1iCache != null) {
+					l1iCache.matcher = matcher;
 				}
-				i++;
+			}
+			catch (IllegalStateException e) {
+				out.println(e.getMessage());
+				return 1;
 			}
 		}
-		catch (IOException e) {
-			System.out.println("File error: " + e.getMessage());
+		if (classify3C) { // Shadow caches hold as many blocks as the real ones
+			l1Cache.classifier = new MissClassifier(l1Cache.numSets * l1Cache.assoc);
+			if (l2Cache.numSets > 0) {
+				l2Cache.classifier = new MissClassifier(l2Cache.numSets * l2Cache.assoc);
+			}
+		}
+
+		// Scan input file for commands. A replay only needs the trace to
+		// build the optimal policy's future-access map. Merged traces, and a
+		// trace the lookahead window reads ahead, are read while the
+		// simulation runs.
+		boolean traceOk = true;
+		TraceSource source = null; // Streamed trace, null = held whole in commands
+		TraceMerger merger = null;
+		if (traceFiles.length > 1) {
+			try {
+				merger = new TraceMerger(traceFiles, interleave, traceBits, streamOffset, addrBits);
+			}
+			catch (IllegalArgumentException e) {
+				out.println(e.getMessage());
+				return 1;
+			}
+			source = merger;
+			l1Cache.streamAccesses = new int[traceFiles.length];
+			l1Cache.streamMisses = new int[traceFiles.length];
+			l2Cache.streamAccesses = new int[traceFiles.length];
+			l2Cache.streamMisses = new int[traceFiles.length];
+		}
+		else if (lookahead > 0) {
+			try {
+				source = new TraceReader(path, addrBits);
+			}
+			catch (IOException e) {
+				out.println("File error: " + e.getMessage());
+				traceOk = false;
+			}
+		}
+		else if (replayIn == null || policy == 2) {
+			try {
+				commands = (traces != null) ? traces.get(path, addrBits) : readTrace(path, addrBits);
+			}
+			catch (IOException e) {
+				out.println("File error: " + e.getMessage());
+				traceOk = false;
+			}
+			if (policy == 2) {
+				mapFutureAccesses(commands, l1Cache, l2Cache);
+			}
+		}
+		Lookahead window = null;
+		if (lookahead > 0 && source != null) { // Shared, both levels ask about the same references
+			window = new Lookahead(lookahead, l1Cache.offsetBits, source);
+			l1Cache.lookahead = window;
+			l2Cache.lookahead = window;
 		}
 
 		// Print initial setup parameters
-		System.out.println("===== Simulator configuration =====");
-		System.out.println("BLOCKSIZE:		" + blocksize);
-		System.out.println("L1_SIZE:		" + l1Size);	
-		System.out.println("L1_ASSOC:		" + l1Assoc);
-		System.out.println("L2_SIZE:		" + l2Size);
-		System.out.println("L2_ASSOC:		" + l2Assoc);
-		if (policy == 0) {
-			System.out.println("REPLACEMENT POLICY:	LRU");
+		Report report = new Report(out, format, contents);
+		report.heading("===== Simulator configuration =====");
+		report.config("blocksize", "BLOCKSIZE:		" + blocksize, Integer.toString(blocksize), false);
+		report.config("l1_size", "L1_SIZE:		" + l1Size, Long.toString(l1Size), false);
+		report.config("l1_assoc", "L1_ASSOC:		" + l1Assoc, Integer.toString(l1Assoc), false);
+		report.config("l2_size", "L2_SIZE:		" + l2Size, Long.toString(l2Size), false);
+		report.config("l2_assoc", "L2_ASSOC:		" + l2Assoc, Integer.toString(l2Assoc), false);
+		if (policy < 0 || policy >= POLICY_NAMES.length) {
+			out.println("INVALID REPLACEMENT POLICY");
+			return 1;
 		}
-		else if (policy == 1) {
-			System.out.println("REPLACEMENT POLICY:	FIFO");
+		report.config("replacement_policy", "REPLACEMENT POLICY:	" + POLICY_NAMES[policy], POLICY_NAMES[policy], true);
+		if (inclusion < 0 || inclusion >= INCLUSION_NAMES.length) {
+			out.println("INVALID INCLUSION PROPERTY");
+			return 1;
 		}
-		else if (policy == 2) {
-			System.out.println("REPLACEMENT POLICY:	optimal");
+		report.config("inclusion", "INCLUSION PROPERTY:	" + INCLUSION_NAMES[inclusion], INCLUSION_NAMES[inclusion], true);
+		report.config("trace_file", "trace_file:		" + file, file, true);
+		if (l1Index != Cache.INDEX_MOD || l2Index != Cache.INDEX_MOD) { // Default output stays as it was
+			report.config("l1_index", "L1_INDEX:		" + INDEX_NAMES[l1Index], INDEX_NAMES[l1Index], true);
+			report.config("l2_index", "L2_INDEX:		" + INDEX_NAMES[l2Index], INDEX_NAMES[l2Index], true);
 		}
-		else {
-			System.out.println("INVALID REPLACEMENT POLICY");
-			return;
+		if (l1Insertion != Cache.INSERT_MRU || l2Insertion != Cache.INSERT_MRU) {
+			report.config("l1_insertion", "L1_INSERTION:		" + INSERTION_NAMES[l1Insertion], INSERTION_NAMES[l1Insertion], true);
+			report.config("l2_insertion", "L2_INSERTION:		" + INSERTION_NAMES[l2Insertion], INSERTION_NAMES[l2Insertion], true);
 		}
-		if (inclusion == 0) {
-			System.out.println("INCLUSION PROPERTY:	non-inclusive");
+		if (deadBlock != null) {
+			report.config("l2_deadblock", "L2_DEADBLOCK:		" + deadBlock, deadBlock, true);
 		}
-		else if (inclusion == 1) {
-			System.out.println("INCLUSION PROPERTY:	inclusive");
+		if (l1iCache != null) {
+			report.config("l1i_size", "L1I_SIZE:		" + l1iSize, Long.toString(l1iSize), false);
+			report.config("l1i_assoc", "L1I_ASSOC:		" + l1iAssoc, Integer.toString(l1iAssoc), false);
+			report.config("l1i_policy", "L1I_POLICY:		" + POLICY_NAMES[l1iPolicy], POLICY_NAMES[l1iPolicy], true);
 		}
-		else {
-			System.out.println("INVALID INCLUSION PROPERTY");
-			return;
+		if (sectors > 0) {
+			report.config("sectors", "SECTORS:		" + sectors, Integer.toString(sectors), false);
+		}
+		if (merger != null) {
+			report.config("interleave", "INTERLEAVE:		" + interleave, interleave, true);
+		}
+		if (partitionSpec != null) {
+			report.config("l2_partition", "L2_PARTITION:		" + partitionSpec, partitionSpec, true);
+		}
+		if (lookahead > 0) {
+			report.config("lookahead", "LOOKAHEAD:		" + lookahead, Integer.toString(lookahead), false);
 		}
-		System.out.println("trace_file:		" + file);
 
-		int clockCycle = 1; // Iterate through commands an access caches
-		for (Command command : commands) {
-			// System.out.println("----------------------------------------");
+		if (replayIn != null) { // L2-only run, the L1 side comes from the recording
+			try {
+				MissStream.replay(replayIn, l1Cache, l2Cache);
+			}
+			catch (IOException e) {
+				out.println("Miss stream error: " + e.getMessage());
+				return 1;
+			}
+			commands = new ArrayList<Command>(); // Only kept the trace for the optimal map, nothing left to simulate
+		}
 
-			// String dir = null;
-			// if (command.cmd == 'r') {
-			// 	dir = "read";
-			// }
-			// else if (command.cmd == 'w') {
-			// 	dir = "write";
-			// }
-			// else {
-			// 	System.out.println("Invalid direction for command # " + clockCycle);
-			// 	return;
-			// }
-			// System.out.println("# " + clockCycle + " : " + dir + " " + command.addr);
-			// This is where the actual access takes place for each command
-			l1Cache.access(command, clockCycle++);
-			
-			// debug code - delete later
-			// int index = Cache.calcIndex(command.addr, l2Cache.tagBits, l2Cache.indexBits);
-			// System.out.println("Index: " + index);
-			// System.out.print("Set: ");
-			// for (int i = 0; i < l2Cache.blocks[index].length; i++) {
-			// 	if (l2Cache.blocks[index][i] != null)
-			// 	System.out.print(l2Cache.blocks[index][i].address + " " + l2Cache.blocks[index][i].clockCycle + " ");
-			// 	else
-			// 	System.out.print("null  ");
-			// }
-			// System.out.println("");
-	
+		MissStream missStream = null;
+		if (emitOut != null) {
+			try {
+				missStream = MissStream.create(emitOut, l1Cache);
+			}
+			catch (IOException e) {
+				out.println("Miss stream error: " + e.getMessage());
+				return 1;
+			}
+			l1Cache.missStream = missStream;
 		}
 
-		if (l1Cache.numSets > 0) { // Print final cache contents
-			System.out.println("===== L1 contents =====");
-			for (int i = 0; i < l1Cache.numSets; i++) {
-				System.out.print("Set	" + i + ":	");
-				for (int j = 0; j < l1Assoc; j++) {
-					Block block = l1Cache.blocks[i][j];
-					if (block != null) {
-						System.out.print(Cache.calcTag(block.address, l1Cache.tagBits));
-						if (block.dirty == true) {
-							System.out.print(" D	"); // D means dirty
-						}
-						else {
-							System.out.print("	");
-						}
-					}
+		// Fast-forward: pick up the hierarchy where an earlier run left it
+		int start = 0;
+		if (checkpointIn != null) {
+			try {
+				if (l2Cache.numSets > 0) {
+					start = Checkpoint.restore(checkpointIn, l1Cache, l2Cache);
+				}
+				else {
+					start = Checkpoint.restore(checkpointIn, l1Cache);
 				}
-				System.out.println("");
+			}
+			catch (IOException e) {
+				out.println("Checkpoint error: " + e.getMessage());
+				return 1;
 			}
 		}
-		if (l2Cache.numSets > 0) {
-			System.out.println("===== L2 contents =====");
-			for (int i = 0; i < l2Cache.numSets; i++) {
-				System.out.print("Set	" + i + ":	");
-				for (int j = 0; j < l2Assoc; j++) {
-					Block block = l2Cache.blocks[i][j];
-					if (block != null) {
-						System.out.print(Cache.calcTag(block.address, l2Cache.tagBits));
-						if (block.dirty == true) {
-							System.out.print(" D	"); // D means dirty
+
+		IntervalStats intervalStats = null;
+		if (interval > 0) {
+			PrintStream intervalStream = out;
+			if (intervalOut != null) {
+				try {
+					intervalStream = new PrintStream(new FileOutputStream(intervalOut), false);
+				}
+				catch (IOException e) {
+					out.println("File error: " + e.getMessage());
+					return 1;
+				}
+			}
+			intervalStats = new IntervalStats(l1Cache, (l2Cache.numSets > 0) ? l2Cache : null, inclusion, interval, intervalJson, intervalStream);
+			intervalStats.rebase(start);
+		}
+
+		SimulationMonitor monitor = null;
+		int clockCycle = start + 1; // Iterate through commands an access caches
+		int ref = start;
+		try { // Returns on errors below must still unregister the MBeans and stop the trace readers
+			if (jmxPeriod > 0) {
+				int total = (source != null) ? -1 : commands.size(); // Streamed traces, length unknown
+				if (l2Cache.numSets > 0) {
+					monitor = new SimulationMonitor(file, total, jmxPeriod, l1Cache, l2Cache);
+				}
+				else {
+					monitor = new SimulationMonitor(file, total, jmxPeriod, l1Cache);
+				}
+				try {
+					monitor.start(start);
+				}
+				catch (JMException e) {
+					out.println("JMX error: " + e.getMessage());
+					return 1;
+				}
+			}
+
+			if (merger != null) {
+				merger.start();
+			}
+			if (window != null) {
+				window.skip(start);
+			}
+			for (; ref < commands.size() || source != null; ref++) {
+				Command command = (window != null) ? window.next() : (source != null) ? source.next() : commands.get(ref);
+				if (command == null) { // The streamed trace has ended
+					break;
+				}
+				if (ref == warmup && warmup > 0) {
+					// Warmup over: only count what happens from here on. A run restored past
+					// this point keeps the checkpoint's counters, already reset when it was taken.
+					l1Cache.resetStats();
+					l2Cache.resetStats();
+					if (l1iCache != null) {
+						l1iCache.resetStats();
+					}
+					if (dram != null) {
+						dram.resetStats();
+					}
+					if (mmu != null) {
+						mmu.resetStats();
+					}
+					if (missStream != null) {
+						missStream.markReset();
+					}
+					if (intervalStats != null) {
+						intervalStats.rebase(ref);
+					}
+				}
+				// System.out.println("----------------------------------------");
+
+				// String dir = null;
+				// if (command.cmd == 'r') {
+				// 	dir = "read";
+				// }
+				// else if (command.cmd == 'w') {
+				// 	dir = "write";
+				// }
+				// else {
+				// 	System.out.println("Invalid direction for command # " + clockCycle);
+				// 	return;
+				// }
+				// System.out.println("# " + clockCycle + " : " + dir + " " + Long.toHexString(command.addr));
+				// This is where the actual access takes place for each command
+				Cache front = (l1iCache != null && command.cmd == 'i') ? l1iCache : l1Cache;
+				if (mmu != null && front == l1Cache) { // Page walk reads, if any, go first; there's no ITLB
+					clockCycle = mmu.translate(command, l1Cache, (l2Cache.numSets > 0) ? l2Cache : null, clockCycle);
+				}
+				front.access(command, clockCycle++);
+				if (intervalStats != null) {
+					intervalStats.tick(ref + 1);
+				}
+				if (monitor != null) {
+					monitor.position = ref + 1;
+				}
+
+				if (ref + 1 == checkpointAt) {
+					try {
+						if (l2Cache.numSets > 0) {
+							Checkpoint.save(checkpointOut, checkpointAt, l1Cache, l2Cache);
 						}
 						else {
-							System.out.print("	");
+							Checkpoint.save(checkpointOut, checkpointAt, l1Cache);
 						}
 					}
+					catch (IOException e) {
+						out.println("Checkpoint error: " + e.getMessage());
+						return 1;
+					}
 				}
-				System.out.println("");
+			
+				// debug code - delete later
+				// int index = l2Cache.calcIndex(command.addr);
+				// System.out.println("Index: " + index);
+				// System.out.print("Set: ");
+				// for (int i = 0; i < l2Cache.assoc; i++) {
+				// 	if (l2Cache.lines.present(index, i))
+				// 	System.out.print(Long.toHexString(l2Cache.lines.block(index, i)) + " " + l2Cache.lines.meta(index, i) + " ");
+				// 	else
+				// 	System.out.print("null  ");
+				// }
+				// System.out.println("");
+	
 			}
 		}
+		finally {
+			if (monitor != null) {
+				monitor.stop();
+			}
+			if (source != null) {
+				source.close();
+			}
+		}
+		if (source != null && source.error() != null) {
+			out.println("File error: " + source.error().getMessage());
+			traceOk = false;
+		}
+		if (dram != null) {
+			dram.finish();
+		}
+		if (missStream != null) {
+			try {
+				missStream.finish(ref, l1Cache);
+			}
+			catch (IOException e) {
+				out.println("Miss stream error: " + e.getMessage());
+				return 1;
+			}
+		}
+		if (intervalStats != null) {
+			intervalStats.finish(ref);
+			if (intervalOut != null) {
+				intervalStats.out.close();
+			}
+		}
+
+		if (l1Cache.numSets > 0) { // Print final cache contents
+			report.contents("L1", l1Cache);
+		}
+		if (l1iCache != null) {
+			report.contents("L1I", l1iCache);
+		}
+		if (l2Cache.numSets > 0) {
+			report.contents("L2", l2Cache);
+		}
 
 		// Calculate raw data based on cache performance
 		if ((l1Cache.numReads + l1Cache.numWrites) > 0) {
@@ -236,49 +858,234 @@ class sim_cache {
 		if (l2Cache.numSets > 0) {
 			l2MissRate = (float)(l2Cache.numReadMisses) / l2Cache.numReads;
 			l1WritebacksToNext = l1Cache.numWritebacks;
-			if (inclusion == 0) {
-				totalMemTraffic = l2Cache.numReadMisses + l2Cache.numWriteMisses + l2Cache.numInvalWritebacks + l2Cache.numWritebacks;
-			}
-			else {
-				totalMemTraffic = l2Cache.numReadMisses + l2Cache.numWriteMisses + l2Cache.numInvalWritebacks + l2Cache.numWritebacks + l1Cache.numInvalWritebacks;
-			}
+			totalMemTraffic = memTraffic(l1Cache, l2Cache, inclusion);
 		}
 		else {
-			totalMemTraffic = l1Cache.numReadMisses + l1Cache.numWriteMisses + l1Cache.numWritebacks + l1Cache.numInvalWritebacks;
+			totalMemTraffic = memTraffic(l1Cache, null, inclusion);
+			if (l1iCache != null) { // Fetch misses read memory directly
+				totalMemTraffic += l1iCache.numReadMisses;
+			}
 		}
 		
 		// Print raw results
-		System.out.println("===== Simulation results (raw) =====");
-		System.out.println("a. number of L1 reads:			" + l1Cache.numReads);
-		System.out.println("b. number of L1 read misses:		" + l1Cache.numReadMisses);
-		System.out.println("c. number of L1 writes:			" + l1Cache.numWrites);
-		System.out.println("d. number of L1 write misses:		" + l1Cache.numWriteMisses);
-		
-		String formatL1MR;
-		if (l1MissRate > 0) {
-			formatL1MR = String.format("e. L1 miss rate:			%.6f", l1MissRate);
+		report.heading("===== Simulation results (raw) =====");
+		report.result("l1_reads", "a. number of L1 reads:			", Integer.toString(l1Cache.numReads));
+		report.result("l1_read_misses", "b. number of L1 read misses:		", Integer.toString(l1Cache.numReadMisses));
+		report.result("l1_writes", "c. number of L1 writes:			", Integer.toString(l1Cache.numWrites));
+		report.result("l1_write_misses", "d. number of L1 write misses:		", Integer.toString(l1Cache.numWriteMisses));
+		report.result("l1_miss_rate", "e. L1 miss rate:			", (l1MissRate > 0) ? String.format("%.6f", l1MissRate) : "0");
+		report.result("l1_writebacks", "f. number of L1 writebacks:		", Integer.toString(l1WritebacksToNext));
+		report.result("l2_reads", "g. number of L2 reads:			", Integer.toString(l2Cache.numReads));
+		report.result("l2_read_misses", "h. number of L2 read misses:		", Integer.toString(l2Cache.numReadMisses));
+		report.result("l2_writes", "i. number of L2 writes:			", Integer.toString(l2Cache.numWrites));
+		report.result("l2_write_misses", "j. number of L2 write misses:		", Integer.toString(l2Cache.numWriteMisses));
+		report.result("l2_miss_rate", "k. L2 miss rate:			", (l2MissRate > 0) ? String.format("%.6f", l2MissRate) : "0");
+		report.result("l2_writebacks", "l. number of L2 writebacks:		", Integer.toString(l2Cache.numWritebacks + l2Cache.numInvalWritebacks));
+		report.result("mem_traffic", "m. total memory traffic:		", Integer.toString(totalMemTraffic));
+		if (classify3C) {
+			report.result("l1_compulsory_misses", "n. number of L1 compulsory misses:	", Integer.toString(l1Cache.classifier.numCompulsory));
+			report.result("l1_capacity_misses", "o. number of L1 capacity misses:	", Integer.toString(l1Cache.classifier.numCapacity));
+			report.result("l1_conflict_misses", "p. number of L1 conflict misses:	", Integer.toString(l1Cache.classifier.numConflict));
+			if (l2Cache.classifier != null) {
+				report.result("l2_compulsory_misses", "q. number of L2 compulsory misses:	", Integer.toString(l2Cache.classifier.numCompulsory));
+				report.result("l2_capacity_misses", "r. number of L2 capacity misses:	", Integer.toString(l2Cache.classifier.numCapacity));
+				report.result("l2_conflict_misses", "s. number of L2 conflict misses:	", Integer.toString(l2Cache.classifier.numConflict));
+			}
 		}
-		else {
-			formatL1MR = "e. L1 miss rate:			0";
+		if (energy != null) {
+			if (dram != null && !missPenaltyGiven) { // Misses cost what the memory model measured
+				energy.missPenalty = dram.averageReadLatency();
+			}
+			EnergyModel.Estimate estimate = energy.evaluate(l1Cache, (l2Cache.numSets > 0) ? l2Cache : null);
+			report.result("access_time", "t. average access time (ns):		", String.format("%.6f", estimate.accessTime));
+			report.result("area", "u. total area (mm*mm):			", String.format("%.6f", estimate.area));
+			report.result("l1_dynamic_energy", "v. L1 dynamic energy (nJ):		", String.format("%.6f", estimate.l1Dynamic));
+			report.result("l2_dynamic_energy", "w. L2 dynamic energy (nJ):		", String.format("%.6f", estimate.l2Dynamic));
+			report.result("leakage_energy", "x. leakage energy (nJ):			", String.format("%.6f", estimate.leakage));
+			report.result("total_energy", "y. total energy (nJ):			", String.format("%.6f", estimate.total));
+			report.result("edp", "z. energy-delay product (J*s):		", String.format("%.6e", estimate.edp));
+		}
+		if (l1iCache != null) { // a-f above are the L1D's
+			float l1iMissRate = (l1iCache.numReads > 0) ? (float)l1iCache.numReadMisses / l1iCache.numReads : 0;
+			report.heading("===== Instruction cache =====");
+			report.result("l1i_fetches", "number of L1I fetches:			", Integer.toString(l1iCache.numReads));
+			report.result("l1i_fetch_misses", "number of L1I fetch misses:		", Integer.toString(l1iCache.numReadMisses));
+			report.result("l1i_miss_rate", "L1I miss rate:				", (l1iMissRate > 0) ? String.format("%.6f", l1iMissRate) : "0");
+		}
+		if (mmu != null) {
+			report.heading("===== Address translation =====");
+			report.result("dtlb_accesses", "number of DTLB accesses:		", Long.toString(mmu.dtlb.accesses));
+			report.result("dtlb_misses", "number of DTLB misses:			", Long.toString(mmu.dtlb.misses));
+			report.result("dtlb_miss_rate", "DTLB miss rate:				", String.format("%.6f", mmu.dtlb.missRate()));
+			if (mmu.stlb != null) {
+				report.result("stlb_accesses", "number of STLB accesses:		", Long.toString(mmu.stlb.accesses));
+				report.result("stlb_misses", "number of STLB misses:			", Long.toString(mmu.stlb.misses));
+				report.result("stlb_miss_rate", "STLB miss rate:				", String.format("%.6f", mmu.stlb.missRate()));
+			}
+			report.result("page_walks", "number of page walks:			", Long.toString(mmu.walks));
+			report.result("walk_l1_reads", "number of page walk L1 reads:		", Long.toString(mmu.walkReads));
+			report.result("walk_l1_misses", "number of page walk L1 misses:		", Long.toString(mmu.walkL1Misses));
+			report.result("walk_l2_misses", "number of page walk L2 misses:		", Long.toString(mmu.walkL2Misses));
+		}
+		if (sectors > 0) {
+			// Tag plus a valid and a dirty bit per sector, against the same capacity in sector-sized blocks
+			int sectorSize = blocksize / sectors;
+			report.heading("===== Sectoring =====");
+			report.result("sector_size", "sector size (bytes):			", Integer.toString(sectorSize));
+			for (Cache cache : (l2Cache.numSets > 0) ? new Cache[] {l1Cache, l2Cache} : new Cache[] {l1Cache}) {
+				long lines = (long)cache.numSets * cache.assoc;
+				long bits = lines * (cache.tagBits + 2L * sectors);
+				long plainBits = lines * sectors * (cache.tagBits + 2L);
+				String level = "L" + cache.level;
+				report.result("l" + cache.level + "_tag_bits", level + " tag and state bits:			", Long.toString(bits));
+				report.result("l" + cache.level + "_plain_tag_bits", level + " bits, sector-sized blocks:	", Long.toString(plainBits));
+				report.result("l" + cache.level + "_tag_savings", level + " tag storage saved:			",
+						String.format("%.6f", (plainBits > 0) ? 1 - (double)bits / plainBits : 0));
+			}
+			report.result("mem_traffic_bytes", "total memory traffic (bytes):		", Long.toString((long)totalMemTraffic * sectorSize));
+		}
+		if (merger != null) {
+			report.heading("===== Per-stream statistics =====");
+			for (int s = 0; s < traceFiles.length; s++) {
+				for (Cache cache : (l2Cache.numSets > 0) ? new Cache[] {l1Cache, l2Cache} : new Cache[] {l1Cache}) {
+					String level = "L" + cache.level;
+					String key = "l" + cache.level + "_stream" + s;
+					int accesses = cache.streamAccesses[s];
+					report.result(key + "_accesses", "stream " + s + " " + level + " accesses:			", Integer.toString(accesses));
+					report.result(key + "_misses", "stream " + s + " " + level + " misses:			", Integer.toString(cache.streamMisses[s]));
+					report.result(key + "_miss_rate", "stream " + s + " " + level + " miss rate:			",
+							(accesses > 0) ? String.format("%.6f", (double)cache.streamMisses[s] / accesses) : "0");
+				}
+			}
+		}
+		if (l2Cache.deadBlock != null) {
+			DeadBlockPredictor predictor = l2Cache.deadBlock;
+			report.heading("===== Dead-block prediction =====");
+			report.result("l2_bypasses", "number of L2 bypasses:			", Integer.toString(predictor.numBypasses));
+			report.result("l2_low_priority_fills", "number of L2 low-priority fills:	", Integer.toString(predictor.numLowPriority));
+			report.result("l2_bypass_mispredictions", "number of bypassed blocks re-read:	", Integer.toString(predictor.numBypassMispredictions));
+			report.result("l2_low_priority_hits", "number of low-priority fills hit:	", Integer.toString(predictor.numLowPriorityHits));
+			report.result("l2_dead_inclusion_victims", "number of dead L2 victims live in L1:	", Integer.toString(predictor.numInclusionVictims));
+		}
+		if (l2Cache.partition != null) {
+			WayPartition partition = l2Cache.partition;
+			report.heading("===== Cache partitioning =====");
+			for (int s = 0; s < partition.streams; s++) {
+				report.result("stream" + s + "_l2_accesses", "stream " + s + " L2 accesses:			", Long.toString(partition.accesses[s]));
+				report.result("stream" + s + "_l2_misses", "stream " + s + " L2 misses:			", Long.toString(partition.misses[s]));
+				report.result("stream" + s + "_l2_hit_rate", "stream " + s + " L2 hit rate:			", String.format("%.6f", partition.hitRate(s)));
+			}
+			report.result("l2_ways", "final L2 ways per stream:		", WayPartition.format(partition.quota), true);
+			report.result("l2_repartitions", "number of partition changes:		", Integer.toString(partition.numChanges));
+			for (int c = 0; c < partition.changeTimes.size(); c++) {
+				String label = "ways after L2 access " + partition.changeTimes.get(c) + ":";
+				report.result("l2_ways_at_" + partition.changeTimes.get(c), label + "\t".repeat(Math.max(1, (47 - label.length()) / 8)),
+						WayPartition.format(partition.changeQuotas.get(c)), true);
+			}
+		}
+		if (dram != null) {
+			report.heading("===== Main memory =====");
+			report.result("dram_reads", "number of DRAM reads:			", Long.toString(dram.reads));
+			report.result("dram_writes", "number of DRAM writes:			", Long.toString(dram.writes));
+			report.result("dram_row_hits", "number of row buffer hits:		", Long.toString(dram.rowHits));
+			report.result("dram_row_misses", "number of row buffer misses:		", Long.toString(dram.rowEmpty));
+			report.result("dram_bank_conflicts", "number of bank conflicts:		", Long.toString(dram.rowConflicts));
+			report.result("dram_row_hit_rate", "row buffer hit rate:			", String.format("%.6f", dram.rowHitRate()));
+			report.result("dram_refreshes", "number of refreshes:			", Long.toString(dram.refreshes));
+			report.result("dram_queue_full", "number of queue-full stalls:		", Long.toString(dram.queueFull));
+			report.result("dram_latency", "average memory latency (ns):		", String.format("%.6f", dram.averageLatency()));
+			report.result("dram_read_latency", "average read latency (ns):		", String.format("%.6f", dram.averageReadLatency()));
 		}
-		System.out.println(formatL1MR);
+		report.finish();
+		return traceOk ? 0 : 1;
+	}
 
-		System.out.println("f. number of L1 writebacks:		" + l1WritebacksToNext);
-		System.out.println("g. number of L2 reads:			" + l2Cache.numReads);
-		System.out.println("h. number of L2 read misses:		" + l2Cache.numReadMisses);
-		System.out.println("i. number of L2 writes:			" + l2Cache.numWrites);
-		System.out.println("j. number of L2 write misses:		" + l2Cache.numWriteMisses);
-		
-		String formatL2MR;
-		if (l2MissRate > 0) {
-			formatL2MR = String.format("k. L2 miss rate:			%.6f", l2MissRate);
+	// Input: A trace file name (text, or a BinaryTrace) and the address width.
+	// A text line is "r|w|i <hex>" (read, write or instruction fetch), and may be
+	// tagged with the stream that issued it: "r|w|i <hex> <stream>".
+	// Output: Every trace line as a command, in trace order
+	static List<Command> readTrace(String file, int addrBits) throws IOException {
+		if (BinaryTrace.isBinary(file)) {
+			return BinaryTrace.read(file, addrBits);
 		}
-		else {
-			formatL2MR = "k. L2 miss rate:			0";
+		List<Command> commands = new ArrayList<Command>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			while((line = reader.readLine()) != null) {
+				commands.add(parseCommand(line, addrBits));
+			}
+		}
+		return commands;
+	}
+
+	// Input: One text trace line and the address width
+	// Output: The command it holds; an IOException names a malformed line
+	static Command parseCommand(String line, int addrBits) throws IOException {
+		String[] splitCommand = line.split(" ");
+		if (splitCommand.length < 2 || splitCommand.length > 3 || splitCommand[0].length() != 1
+				|| "rwi".indexOf(splitCommand[0].charAt(0)) < 0) {
+			throw new IOException("Invalid trace record: " + line);
+		}
+		try {
+			char cmd = splitCommand[0].charAt(0);
+			long addr = Cache.parseAddr(splitCommand[1], addrBits);
+			int stream = (splitCommand.length > 2) ? Integer.parseInt(splitCommand[2]) : 0; // Tagged trace
+			return new Command(cmd, addr, stream);
 		}
-		System.out.println(formatL2MR);
+		catch (NumberFormatException e) {
+			throw new IOException("Invalid trace record: " + line);
+		}
+	}
+
+	// Input: The trace and both caches
+	// Output: Void, records when each block is accessed in the caches' optimal maps
+	static void mapFutureAccesses(List<Command> commands, Cache l1Cache, Cache l2Cache) {
+		int i = 1;
+		for (Command command : commands) { // preprocessing of commands to create optimal policy map
+			long addr = command.addr;
+			Queue<Integer> pairAccesses; // Each tag has a queue of when it is accessed
+			Long pairL1 = addr >>> l1Cache.offsetBits; // Block address stands for (tag, index)
+		
+			if (l1Cache.optimalMap.containsKey(pairL1)) { // address has been accessed before
+				pairAccesses = l1Cache.optimalMap.get(pairL1);
+				pairAccesses.add(i); // Insert clockcycle into queue
+			}
+			else { // Address is accessed for the first time
+				// Create new queue and add first access to it
+				pairAccesses = new LinkedList<Integer>(); 
+				pairAccesses.add(i);
+				// Add new address and corresponding value Queue to map
+				l1Cache.optimalMap.put(pairL1, pairAccesses); 
+			}
+			if (l2Cache.assoc > 0) {
+				Long pairL2 = addr >>> l2Cache.offsetBits;
+			
+				if (l2Cache.optimalMap.containsKey(pairL2)) { // address has been accessed before
+					pairAccesses = l2Cache.optimalMap.get(pairL2);
+					pairAccesses.add(i); // Insert clockcycle into queue
+				}
+				else { // Address is accessed for the first time
+					// Create new queue and add first access to it
+					pairAccesses = new LinkedList<Integer>(); 
+					pairAccesses.add(i);
+					// Add new address and corresponding value Queue to map
+					l2Cache.optimalMap.put(pairL2, pairAccesses); 
+				}
+			}
+			i++;
+		}
+	}
 
-		System.out.println("l. number of L2 writebacks:		" + (l2Cache.numWritebacks + l2Cache.numInvalWritebacks));
-		System.out.println("m. total memory traffic:		" + totalMemTraffic);
+	// Input: The L1 cache, the L2 cache (null if absent) and the inclusion property
+	// Output: Blocks that have traveled to or from main memory so far
+	static int memTraffic(Cache l1Cache, Cache l2Cache, int inclusion) {
+		if (l2Cache == null) {
+			return l1Cache.numReadMisses + l1Cache.numWriteMisses + l1Cache.numWritebacks + l1Cache.numInvalWritebacks;
+		}
+		int traffic = l2Cache.numReadMisses + l2Cache.numWriteMisses + l2Cache.numInvalWritebacks + l2Cache.numWritebacks;
+		if (inclusion == 1) {
+			traffic += l1Cache.numInvalWritebacks;
+		}
+		return traffic;
 	}
 }
@@ -0,0 +1,81 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+// Thin front end for sim_server. Takes exactly the sim_cache arguments, runs
+// them on the server and prints the output as sim_cache would, exiting with
+// the job's status.
+class sim_client {
+	// sim_cache options whose value is a file name, sent as absolute paths
+	// because the server has its own working directory. The trace name is
+	// sent as given, with this directory, since sim_cache prints it.
+	static final List<String> FILE_OPTIONS = Arrays.asList("-checkpoint-out", "-checkpoint-in", "-interval-out",
+			"-emit-l2", "-replay-l2", "-result-cache", "-energy");
+
+	public static void main(String[] args) {
+		// sim_client [-port <n> | -socket <path>] <BLOCKSIZE> <L1_SIZE> ... <trace_file> [options]
+		int port = sim_server.DEFAULT_PORT;
+		String socket = null;
+		int first = 0;
+		while (first + 1 < args.length && args[first].startsWith("-")) {
+			if (args[first].equals("-port")) {
+				port = Integer.parseInt(args[first + 1]);
+			}
+			else if (args[first].equals("-socket")) {
+				socket = args[first + 1];
+			}
+			else {
+				System.out.println("Invalid option: " + args[first]);
+				return;
+			}
+			first += 2;
+		}
+
+		String[] simArgs = Arrays.copyOfRange(args, first, args.length);
+		for (int a = 0; a < simArgs.length; a++) {
+			if (a > 7 && FILE_OPTIONS.contains(simArgs[a - 1])) {
+				simArgs[a] = Paths.get(simArgs[a]).toAbsolutePath().toString();
+			}
+		}
+
+		int status;
+		try (SocketChannel channel = (socket != null)
+				? SocketChannel.open(UnixDomainSocketAddress.of(socket))
+				: SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+			DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+			request.writeUTF(Paths.get("").toAbsolutePath().toString());
+			request.writeInt(simArgs.length);
+			for (String arg : simArgs) {
+				request.writeUTF(arg);
+			}
+			request.flush();
+
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+			byte[] buffer = new byte[1 << 16];
+			int length;
+			while ((length = in.readInt()) != sim_server.END) {
+				if (length > buffer.length) {
+					buffer = new byte[length];
+				}
+				in.readFully(buffer, 0, length);
+				System.out.write(buffer, 0, length);
+			}
+			status = in.readInt();
+			System.out.flush();
+		}
+		catch (IOException e) {
+			System.out.println("Server error: " + e.getMessage());
+			status = 1;
+		}
+		System.exit(status);
+	}
+}
@@ -0,0 +1,165 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Long-running sim_cache. Keeps one warm JVM and the parsed traces in memory
+// and runs jobs sent by sim_client over a loopback TCP port or a Unix-domain
+// socket, several at a time on a fixed worker pool.
+// Request: the client's working directory, the argument count and every
+// sim_cache argument (writeUTF/int). The trace name is resolved against the
+// working directory; other file names were already made absolute by the client.
+// Response: the job's output as frames of (int length, bytes) while it runs,
+// then int -1 and the status sim_cache.run returned.
+class sim_server {
+	static final int DEFAULT_PORT = 7070;
+	static final int END = -1;
+
+	public static void main(String[] args) {
+		// sim_server [-port <n> | -socket <path>] [-workers <n>] [-trace-cache <references>]
+		// Options:
+		//   -port <n>             listen on 127.0.0.1:<n> (default 7070)
+		//   -socket <path>        listen on a Unix-domain socket instead
+		//   -workers <n>          jobs run at once (default: available processors)
+		//   -trace-cache <refs>   parsed trace references kept in memory (default 20000000)
+		int port = DEFAULT_PORT;
+		String socket = null;
+		int workers = Runtime.getRuntime().availableProcessors();
+		long traceCacheSize = 20000000;
+		for (int a = 0; a < args.length; a++) {
+			if (args[a].equals("-port") && a + 1 < args.length) {
+				port = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-socket") && a + 1 < args.length) {
+				socket = args[++a];
+			}
+			else if (args[a].equals("-workers") && a + 1 < args.length) {
+				workers = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-trace-cache") && a + 1 < args.length) {
+				traceCacheSize = Long.parseLong(args[++a]);
+			}
+			else {
+				System.out.println("Invalid option: " + args[a]);
+				return;
+			}
+		}
+
+		TraceCache traces = new TraceCache(traceCacheSize);
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try (ServerSocketChannel server = open(socket, port)) {
+			System.out.println("sim_server listening on " + server.getLocalAddress() + " with " + workers + " workers");
+			while (true) {
+				SocketChannel client = server.accept();
+				pool.execute(() -> serve(client, traces));
+			}
+		}
+		catch (IOException e) {
+			System.out.println("Server error: " + e.getMessage());
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	static ServerSocketChannel open(String socket, int port) throws IOException {
+		if (socket != null) {
+			Files.deleteIfExists(Paths.get(socket)); // Left behind by a previous server
+			ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			server.bind(UnixDomainSocketAddress.of(socket));
+			return server;
+		}
+		ServerSocketChannel server = ServerSocketChannel.open();
+		server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		return server;
+	}
+
+	// Input: A connected client and the shared trace cache
+	// Output: Void, runs the client's job and streams its output back
+	static void serve(SocketChannel client, TraceCache traces) {
+		try (SocketChannel channel = client) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			String dir = in.readUTF();
+			String[] args = new String[in.readInt()];
+			for (int a = 0; a < args.length; a++) {
+				args[a] = in.readUTF();
+			}
+
+			DataOutputStream response = new DataOutputStream(Channels.newOutputStream(channel));
+			FrameOutputStream frames = new FrameOutputStream(response);
+			PrintStream out = new PrintStream(frames, false);
+			int status;
+			try {
+				status = sim_cache.run(args, dir, out, traces);
+			}
+			catch (RuntimeException e) { // Malformed numbers and the like, keep serving
+				out.println("Job error: " + e);
+				status = 1;
+			}
+			out.flush();
+			response.writeInt(END);
+			response.writeInt(status);
+			response.flush();
+		}
+		catch (IOException e) {
+			// Client went away, nothing to report to
+		}
+	}
+
+	// Packs whatever the job prints into length-prefixed frames, one per
+	// filled buffer or flush
+	static class FrameOutputStream extends OutputStream {
+		DataOutputStream out;
+		byte[] buffer = new byte[1 << 16];
+		int count;
+
+		FrameOutputStream(DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (count == buffer.length) {
+				flush();
+			}
+			buffer[count++] = (byte)b;
+		}
+
+		@Override
+		public void write(byte[] bytes, int off, int len) throws IOException {
+			while (len > 0) {
+				if (count == buffer.length) {
+					flush();
+				}
+				int n = Math.min(len, buffer.length - count);
+				System.arraycopy(bytes, off, buffer, count, n);
+				count += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (count > 0) {
+				out.writeInt(count);
+				out.write(buffer, 0, count);
+				count = 0;
+			}
+			out.flush();
+		}
+	}
+}
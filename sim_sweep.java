@@ -0,0 +1,212 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Design space sweep over L1/L2 size and associativity, ranked by any result
+// column, energy-delay product by default. Every configuration runs in this
+// JVM through sim_cache.run with the CACTI energy model and JSON output; the
+// trace is parsed once and shared by all workers.
+class sim_sweep {
+	public static void main(String[] args) {
+		// sim_sweep <BLOCKSIZE> <L1_SIZES> <L1_ASSOCS> <L2_SIZES> <L2_ASSOCS> <REPLACEMENT_POLICY> <INCLUSION_PROPERTY> <trace_file> [options]
+		// Sizes and associativities are comma-separated lists, or lo-hi for every
+		// power of two in between; FA stands for fully associative. L2 size 0 means no L2.
+		// Options:
+		//   -objective <column>  result column to minimize, e.g. edp, total_energy,
+		//                        access_time, l1_miss_rate (default edp)
+		//   -energy <csv>        CACTI table (default cacti_table.csv)
+		//   -top <N>             configurations printed (default 10)
+		//   -workers <N>         configurations simulated at once (default: available processors)
+		// Any other option is passed on to sim_cache, e.g. -leakage or -index,
+		// except -format and -contents, which the sweep sets itself.
+		if (args.length < 8) {
+			System.out.println("Invalid arguments");
+			return;
+		}
+		int blocksize = Integer.parseInt(args[0]);
+		String objective = "edp";
+		String energyTable = "cacti_table.csv";
+		int top = 10;
+		int workers = Runtime.getRuntime().availableProcessors();
+		List<String> extra = new ArrayList<String>();
+		for (int a = 8; a < args.length; a++) {
+			if (args[a].equals("-objective") && a + 1 < args.length) {
+				objective = args[++a];
+			}
+			else if (args[a].equals("-energy") && a + 1 < args.length) {
+				energyTable = args[++a];
+			}
+			else if (args[a].equals("-top") && a + 1 < args.length) {
+				top = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-workers") && a + 1 < args.length) {
+				workers = Integer.parseInt(args[++a]);
+			}
+			else if (args[a].equals("-format") || args[a].equals("-contents")) {
+				System.out.println("sim_sweep sets " + args[a] + " itself");
+				return;
+			}
+			else {
+				extra.add(args[a]);
+			}
+		}
+
+		// Every valid combination, as sim_cache arguments
+		List<String[]> configs = new ArrayList<String[]>();
+		for (long l1Size : values(args[1], 0)) {
+			for (long l1Assoc : values(args[2], l1Size / blocksize)) {
+				for (long l2Size : values(args[3], 0)) {
+					for (long l2Assoc : (l2Size > 0) ? values(args[4], l2Size / blocksize) : Arrays.asList(0L)) {
+						if (l1Assoc < 1 || l1Assoc * blocksize > l1Size || (l2Size > 0 && (l2Size <= l1Size || l2Assoc * blocksize > l2Size))) {
+							continue;
+						}
+						List<String> config = new ArrayList<String>(Arrays.asList(args[0], Long.toString(l1Size), Long.toString(l1Assoc),
+								Long.toString(l2Size), Long.toString(l2Assoc), args[5], args[6], args[7],
+								"-energy", energyTable, "-format", "json", "-contents", "none"));
+						config.addAll(extra);
+						configs.add(config.toArray(new String[0]));
+					}
+				}
+			}
+		}
+
+		TraceCache traces = new TraceCache(Long.MAX_VALUE);
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		List<Future<Map<String, String>>> jobs = new ArrayList<Future<Map<String, String>>>();
+		for (String[] config : configs) {
+			jobs.add(pool.submit(() -> simulate(config, traces)));
+		}
+		List<Map<String, String>> results = new ArrayList<Map<String, String>>();
+		for (int j = 0; j < jobs.size(); j++) {
+			try {
+				Map<String, String> result = jobs.get(j).get();
+				if (result == null) {
+					System.out.println("Failed: " + String.join(" ", configs.get(j)));
+				}
+				else {
+					results.add(result);
+				}
+			}
+			catch (Exception e) {
+				System.out.println("Failed: " + String.join(" ", configs.get(j)) + ": " + e);
+			}
+		}
+		pool.shutdown();
+		if (results.isEmpty()) {
+			return;
+		}
+		if (!results.get(0).containsKey(objective)) {
+			System.out.println("Invalid objective: " + objective);
+			return;
+		}
+
+		final String column = objective;
+		Collections.sort(results, Comparator.comparingDouble(r -> Double.parseDouble(r.get(column))));
+		String[] shown = {"l1_size", "l1_assoc", "l2_size", "l2_assoc", "l1_miss_rate", "l2_miss_rate", "access_time", "total_energy", "edp"};
+		StringBuilder header = new StringBuilder("rank");
+		for (String key : shown) {
+			header.append(',').append(key);
+		}
+		if (!Arrays.asList(shown).contains(column)) {
+			header.append(',').append(column);
+		}
+		System.out.println(header);
+		for (int r = 0; r < Math.min(top, results.size()); r++) {
+			StringBuilder row = new StringBuilder(Integer.toString(r + 1));
+			for (String key : shown) {
+				row.append(',').append(results.get(r).get(key));
+			}
+			if (!Arrays.asList(shown).contains(column)) {
+				row.append(',').append(results.get(r).get(column));
+			}
+			System.out.println(row);
+		}
+	}
+
+	// Input: sim_cache arguments asking for JSON output, and the shared traces
+	// Output: Config and result key -> value, or null if the run failed
+	static Map<String, String> simulate(String[] config, TraceCache traces) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 12);
+		PrintStream out = new PrintStream(buffer, false);
+		if (sim_cache.run(config, null, out, traces) != 0) {
+			return null;
+		}
+		out.flush();
+		// Without contents the document is a single line
+		for (String line : buffer.toString().split("\n")) {
+			if (line.startsWith("{\"config\":")) {
+				return parseFields(line);
+			}
+		}
+		return null;
+	}
+
+	// Input: A sim_cache JSON document without contents, i.e. objects whose
+	// values are numbers or strings
+	// Output: Every key -> value, the config and results objects flattened
+	static Map<String, String> parseFields(String doc) {
+		Map<String, String> fields = new HashMap<String, String>();
+		int i = 0;
+		while (i < doc.length()) {
+			if (doc.charAt(i) != '"') {
+				i++;
+				continue;
+			}
+			int end = doc.indexOf('"', i + 1);
+			String key = doc.substring(i + 1, end);
+			i = end + 2; // Past the closing quote and the colon
+			if (doc.charAt(i) == '{') { // "config" or "results"
+				continue;
+			}
+			StringBuilder value = new StringBuilder();
+			if (doc.charAt(i) == '"') {
+				for (i++; doc.charAt(i) != '"'; i++) {
+					if (doc.charAt(i) == '\\') {
+						i++;
+					}
+					value.append(doc.charAt(i));
+				}
+				i++;
+			}
+			else {
+				for (; doc.charAt(i) != ',' && doc.charAt(i) != '}'; i++) {
+					value.append(doc.charAt(i));
+				}
+			}
+			fields.put(key, value.toString());
+		}
+		return fields;
+	}
+
+	// Input: A list ("1024,4096"), a power-of-two range ("1024-65536") or
+	// "FA", and the value FA stands for
+	// Output: Every value it names
+	static List<Long> values(String spec, long fullyAssociative) {
+		List<Long> values = new ArrayList<Long>();
+		for (String part : spec.split(",")) {
+			if (part.equals("FA")) {
+				values.add(fullyAssociative);
+			}
+			else if (part.indexOf('-') > 0) {
+				long low = Long.parseLong(part.substring(0, part.indexOf('-')));
+				long high = Long.parseLong(part.substring(part.indexOf('-') + 1));
+				for (long v = Math.max(low, 1); v <= high; v <<= 1) {
+					values.add(v);
+				}
+			}
+			else {
+				values.add(Long.parseLong(part));
+			}
+		}
+		return values;
+	}
+}
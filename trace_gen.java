@@ -0,0 +1,392 @@
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+
+// Synthetic trace generator for sim_cache. Writes <length> references in the
+// "r|w|i <hex>" text format, or as a BinaryTrace, deterministically from a seed.
+// Every pattern keeps its addresses in [base, base + footprint) and needs
+// O(1) memory, so traces of billions of references stream straight to disk.
+class trace_gen {
+	public static void main(String[] args) {
+		// trace_gen <PATTERN> <LENGTH> [options]
+		// Patterns:
+		//   seq       consecutive 4-byte words
+		//   stride    one reference every -stride bytes
+		//   uniform   uniformly random words
+		//   zipf      Zipf-distributed elements, hot ones scattered over the footprint
+		//   chase     pointer chase, every element once per lap in a random cyclic order
+		//   mixed     the five patterns above in turn, -phase references each
+		// Options:
+		//   -footprint <bytes>   size of the address range (default 1048576)
+		//   -base <hex>          start of the address range (default 10000000)
+		//   -stride <bytes>      step of the stride pattern (default 64)
+		//   -elem <bytes>        element size for zipf and chase (default 64)
+		//   -zipf <s>            Zipf exponent (default 0.99)
+		//   -writes <fraction>   share of writes (default 0.3)
+		//   -phase <N>           references per phase of mixed (default 1000000)
+		//   -seed <S>            random seed (default 1)
+		//   -ifetch <fraction>   share of instruction fetches ("i" records, text only, default 0):
+		//                        4-byte sequential runs with jumps to Zipf-hot 256-byte functions
+		//   -code <bytes>        size of the code the fetches walk (default 65536)
+		//   -code-base <hex>     start of the code (default 400000)
+		//   -binary              write a BinaryTrace instead of text
+		//   -o <file>            output file (default stdout)
+		if (args.length < 2) {
+			System.out.println("Invalid arguments");
+			return;
+		}
+		String pattern = args[0];
+		long length = Long.parseLong(args[1]);
+		long footprint = 1 << 20;
+		long base = 0x10000000L;
+		long stride = 64;
+		long elem = 64;
+		double zipfExponent = 0.99;
+		double writes = 0.3;
+		long phase = 1000000;
+		long seed = 1;
+		double ifetch = 0;
+		long code = 1 << 16;
+		long codeBase = 0x400000L;
+		boolean binary = false;
+		String file = null;
+		for (int a = 2; a < args.length; a++) {
+			if (args[a].equals("-footprint") && a + 1 < args.length) {
+				footprint = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-base") && a + 1 < args.length) {
+				base = Long.parseUnsignedLong(args[++a], 16);
+			}
+			else if (args[a].equals("-stride") && a + 1 < args.length) {
+				stride = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-elem") && a + 1 < args.length) {
+				elem = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-zipf") && a + 1 < args.length) {
+				zipfExponent = Double.parseDouble(args[++a]);
+			}
+			else if (args[a].equals("-writes") && a + 1 < args.length) {
+				writes = Double.parseDouble(args[++a]);
+			}
+			else if (args[a].equals("-phase") && a + 1 < args.length) {
+				phase = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-seed") && a + 1 < args.length) {
+				seed = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-ifetch") && a + 1 < args.length) {
+				ifetch = Double.parseDouble(args[++a]);
+			}
+			else if (args[a].equals("-code") && a + 1 < args.length) {
+				code = Long.parseLong(args[++a]);
+			}
+			else if (args[a].equals("-code-base") && a + 1 < args.length) {
+				codeBase = Long.parseUnsignedLong(args[++a], 16);
+			}
+			else if (args[a].equals("-binary")) {
+				binary = true;
+			}
+			else if (args[a].equals("-o") && a + 1 < args.length) {
+				file = args[++a];
+			}
+			else {
+				System.out.println("Invalid option: " + args[a]);
+				return;
+			}
+		}
+		if (footprint < 4 || stride < 1 || elem < 1 || elem > footprint || phase < 1) {
+			System.out.println("Invalid footprint, stride, element size or phase");
+			return;
+		}
+		if (ifetch < 0 || ifetch > 1 || code < Code.FUNCTION || (ifetch > 0 && binary)) {
+			System.out.println("Invalid instruction fetch share or code size (binary traces hold no fetches)");
+			return;
+		}
+
+		SplittableRandom random = new SplittableRandom(seed);
+		Pattern source;
+		switch (pattern) {
+			case "seq": source = new Strided(4, footprint); break;
+			case "stride": source = new Strided(stride, footprint); break;
+			case "uniform": source = new Uniform(random, footprint); break;
+			case "zipf": source = new Zipf(random, footprint / elem, elem, zipfExponent); break;
+			case "chase": source = new Chase(random, footprint / elem, elem); break;
+			case "mixed":
+				source = new Mixed(phase, new Pattern[] {new Strided(4, footprint), new Zipf(random, footprint / elem, elem, zipfExponent),
+						new Chase(random, footprint / elem, elem), new Uniform(random, footprint), new Strided(stride, footprint)});
+				break;
+			default:
+				System.out.println("Invalid pattern: " + pattern);
+				return;
+		}
+
+		try {
+			OutputStream out = (file != null) ? new FileOutputStream(file) : new FileOutputStream(FileDescriptor.out);
+			if (binary) {
+				BinaryTrace.Writer writer = new BinaryTrace.Writer(out);
+				for (long i = 0; i < length; i++) {
+					boolean write = random.nextDouble() < writes;
+					writer.write(write, base + source.next());
+				}
+				writer.close();
+			}
+			else {
+				Pattern fetches = (ifetch > 0) ? new Code(random, code, zipfExponent) : null;
+				writeText(out, length, random, writes, base, source, ifetch, codeBase, fetches);
+			}
+		}
+		catch (IOException e) {
+			System.out.println("File error: " + e.getMessage());
+		}
+	}
+
+	// Hex lines built straight into a byte buffer, no per-line Strings
+	static void writeText(OutputStream stream, long length, SplittableRandom random, double writes, long base, Pattern source,
+			double ifetch, long codeBase, Pattern fetches) throws IOException {
+		OutputStream out = new BufferedOutputStream(stream, 1 << 20);
+		byte[] line = new byte[20];
+		for (long i = 0; i < length; i++) {
+			long addr;
+			if (fetches != null && random.nextDouble() < ifetch) {
+				line[0] = 'i';
+				addr = codeBase + fetches.next();
+			}
+			else {
+				line[0] = (byte)((random.nextDouble() < writes) ? 'w' : 'r');
+				addr = base + source.next();
+			}
+			line[1] = ' ';
+			int digits = Math.max(1, (67 - Long.numberOfLeadingZeros(addr)) / 4);
+			for (int d = digits; d > 0; d--) {
+				line[1 + d] = (byte)Character.forDigit((int)(addr & 0xF), 16);
+				addr >>>= 4;
+			}
+			line[2 + digits] = '\n';
+			out.write(line, 0, 3 + digits);
+		}
+		out.close();
+	}
+
+	// Address offsets within the footprint
+	static abstract class Pattern {
+		abstract long next();
+	}
+
+	static class Strided extends Pattern {
+		long stride;
+		long footprint;
+		long offset;
+
+		Strided(long stride, long footprint) {
+			this.stride = stride;
+			this.footprint = footprint;
+		}
+
+		long next() {
+			long current = offset;
+			offset += stride;
+			if (offset >= footprint) {
+				offset %= footprint;
+			}
+			return current;
+		}
+	}
+
+	static class Uniform extends Pattern {
+		SplittableRandom random;
+		long words;
+
+		Uniform(SplittableRandom random, long footprint) {
+			this.random = random;
+			this.words = footprint / 4;
+		}
+
+		long next() {
+			return random.nextLong(words) * 4;
+		}
+	}
+
+	// Zipf ranks by rejection-inversion sampling (Hormann and Derflinger,
+	// "Rejection-inversion to generate variates from monotone discrete
+	// distributions"), O(1) per sample for any number of elements. Rank r is
+	// placed at element scatter(r - 1) so hot elements don't share sets.
+	static class Zipf extends Pattern {
+		SplittableRandom random;
+		long elements;
+		long elem;
+		double exponent;
+		double hIntegralX1;
+		double hIntegralN;
+		double s;
+		Scatter scatter;
+
+		Zipf(SplittableRandom random, long elements, long elem, double exponent) {
+			this.random = random;
+			this.elements = elements;
+			this.elem = elem;
+			this.exponent = exponent;
+			this.hIntegralX1 = hIntegral(1.5) - 1;
+			this.hIntegralN = hIntegral(elements + 0.5);
+			this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+			this.scatter = new Scatter(elements);
+		}
+
+		long next() {
+			while (true) {
+				double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+				double x = hIntegralInverse(u);
+				long k = (long)(x + 0.5);
+				if (k < 1) {
+					k = 1;
+				}
+				else if (k > elements) {
+					k = elements;
+				}
+				if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+					return scatter.map(k - 1) * elem;
+				}
+			}
+		}
+
+		double h(double x) {
+			return Math.exp(-exponent * Math.log(x));
+		}
+
+		double hIntegral(double x) {
+			double logX = Math.log(x);
+			return helper2((1 - exponent) * logX) * logX;
+		}
+
+		double hIntegralInverse(double x) {
+			double t = x * (1 - exponent);
+			if (t < -1) {
+				t = -1;
+			}
+			return Math.exp(helper1(t) * x);
+		}
+
+		// log1p(x) / x, accurate near 0
+		static double helper1(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.log1p(x) / x;
+			}
+			return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+		}
+
+		// expm1(x) / x, accurate near 0
+		static double helper2(double x) {
+			if (Math.abs(x) > 1e-8) {
+				return Math.expm1(x) / x;
+			}
+			return 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+		}
+	}
+
+	// Pointer chase: a full-period LCG over the next power of two, passed
+	// through Scatter, visits every element exactly once per lap in an order
+	// with no stride pattern, without storing the permutation
+	static class Chase extends Pattern {
+		long elem;
+		long mask;
+		long state;
+		Scatter scatter;
+
+		Chase(SplittableRandom random, long elements, long elem) {
+			this.elem = elem;
+			this.scatter = new Scatter(elements);
+			this.mask = scatter.mask;
+			this.state = random.nextLong() & mask;
+		}
+
+		long next() {
+			long element;
+			do { // Skip the states past the last element
+				state = (state * 6364136223846793005L + 1442695040888963407L) & mask;
+				element = scatter.mix(state);
+			} while (element >= scatter.elements);
+			return element * elem;
+		}
+	}
+
+	// Instruction fetches: consecutive instructions, and about every 16th a
+	// jump (call, branch or return) to the start of a function, hot
+	// functions chosen far more often than cold ones
+	static class Code extends Pattern {
+		static final long FUNCTION = 256;
+
+		SplittableRandom random;
+		Zipf functions;
+		long footprint;
+		long pc;
+
+		Code(SplittableRandom random, long footprint, double exponent) {
+			this.random = random;
+			this.functions = new Zipf(random, footprint / FUNCTION, FUNCTION, exponent);
+			this.footprint = footprint;
+		}
+
+		long next() {
+			if (random.nextInt(16) == 0) {
+				pc = functions.next();
+			}
+			else {
+				pc = (pc + 4) % footprint;
+			}
+			return pc;
+		}
+	}
+
+	static class Mixed extends Pattern {
+		long phase;
+		Pattern[] patterns;
+		long count;
+		int current;
+
+		Mixed(long phase, Pattern[] patterns) {
+			this.phase = phase;
+			this.patterns = patterns;
+		}
+
+		long next() {
+			if (count == phase) {
+				count = 0;
+				current = (current + 1) % patterns.length;
+			}
+			count++;
+			return patterns[current].next();
+		}
+	}
+
+	// A bijection on [0, elements): xorshift-multiply mixing on the covering
+	// power of two, cycle-walked until the value falls in range
+	static class Scatter {
+		long elements;
+		long mask;
+		int shift;
+
+		Scatter(long elements) {
+			this.elements = elements;
+			int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, elements - 1));
+			this.mask = (bits == 64) ? -1L : (1L << bits) - 1;
+			this.shift = Math.max(1, (bits + 1) / 2);
+		}
+
+		long mix(long x) {
+			x ^= x >>> shift;
+			x = (x * 0x9E3779B97F4A7C15L) & mask;
+			x ^= x >>> shift;
+			return x;
+		}
+
+		long map(long x) {
+			do {
+				x = mix(x);
+			} while (x >= elements);
+			return x;
+		}
+	}
+}